@@ -0,0 +1,174 @@
+package datastructures.concrete;
+
+import datastructures.interfaces.IList;
+import misc.exceptions.EmptyContainerException;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * An IList backed by a growable array.
+ *
+ * Unlike DoubleLinkedList, get and set take constant time and no node is allocated
+ * per item, so iterating over long lists such as a page's words stays in cache.
+ * Adding to the end takes amortized constant time; inserting or deleting anywhere
+ * else shifts every later item.
+ *
+ * Note: For more info on the expected behavior of these methods, see
+ * the source code for IList.
+ */
+public class ArrayList<T> implements IList<T> {
+    private static final int INITIAL_CAPACITY = 8;
+
+    private T[] items;
+    private int size;
+
+    public ArrayList() {
+        this(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Constructs a list that can hold the given number of items before it needs to grow.
+     *
+     * @throws IllegalArgumentException  if capacity is negative
+     */
+    public ArrayList(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Capacity must not be negative");
+        }
+        this.items = makeArrayOfItems(Math.max(capacity, 1));
+        this.size = 0;
+    }
+
+    /**
+     * This method will return a new, empty array of the given size
+     * that can contain T objects.
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> T[] makeArrayOfItems(int size) {
+        return (T[]) new Object[size];
+    }
+
+    @Override
+    public void add(T item) {
+        this.ensureCapacity(this.size + 1);
+        this.items[this.size] = item;
+        this.size++;
+    }
+
+    @Override
+    public T remove() {
+        if (this.size == 0) {
+            throw new EmptyContainerException();
+        }
+        this.size--;
+        T item = this.items[this.size];
+        this.items[this.size] = null; // let the item be garbage collected
+        return item;
+    }
+
+    @Override
+    public T get(int index) {
+        this.checkIndex(index, this.size);
+        return this.items[index];
+    }
+
+    @Override
+    public void set(int index, T item) {
+        this.checkIndex(index, this.size);
+        this.items[index] = item;
+    }
+
+    @Override
+    public void insert(int index, T item) {
+        this.checkIndex(index, this.size + 1);
+        this.ensureCapacity(this.size + 1);
+        System.arraycopy(this.items, index, this.items, index + 1, this.size - index);
+        this.items[index] = item;
+        this.size++;
+    }
+
+    @Override
+    public T delete(int index) {
+        this.checkIndex(index, this.size);
+        T item = this.items[index];
+        System.arraycopy(this.items, index + 1, this.items, index, this.size - index - 1);
+        this.size--;
+        this.items[this.size] = null;
+        return item;
+    }
+
+    @Override
+    public int indexOf(T item) {
+        for (int i = 0; i < this.size; i++) {
+            if (item == null ? this.items[i] == null : item.equals(this.items[i])) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public int size() {
+        return this.size;
+    }
+
+    @Override
+    public boolean contains(T other) {
+        return this.indexOf(other) != -1;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new ArrayListIterator<T>(this.items, this.size);
+    }
+
+    /**
+     * Grows the backing array, doubling its length, until it can hold the given
+     * number of items.
+     */
+    private void ensureCapacity(int capacity) {
+        if (capacity > this.items.length) {
+            int newLength = this.items.length;
+            while (newLength < capacity) {
+                newLength *= 2;
+            }
+            T[] newItems = makeArrayOfItems(newLength);
+            System.arraycopy(this.items, 0, newItems, 0, this.size);
+            this.items = newItems;
+        }
+    }
+
+    private void checkIndex(int index, int max) {
+        if (index < 0 || index >= max) {
+            throw new IndexOutOfBoundsException();
+        }
+    }
+
+    private static class ArrayListIterator<T> implements Iterator<T> {
+        private T[] items;
+        private int size;
+        private int index;
+
+        public ArrayListIterator(T[] items, int size) {
+            this.items = items;
+            this.size = size;
+            this.index = 0;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return this.index < this.size;
+        }
+
+        @Override
+        public T next() {
+            if (!this.hasNext()) {
+                throw new NoSuchElementException();
+            }
+            T item = this.items[this.index];
+            this.index++;
+            return item;
+        }
+    }
+}
@@ -0,0 +1,286 @@
+package datastructures.concrete.dictionaries;
+
+import datastructures.concrete.KVPair;
+import datastructures.interfaces.IDictionary;
+import misc.exceptions.NoSuchKeyException;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A dictionary mapping primitive ints to primitive doubles, such as document ids to
+ * scores.
+ *
+ * The pairs are stored directly in parallel arrays using open addressing with linear
+ * probing, so no objects are allocated per pair. Keys and values are only boxed when
+ * used through the IDictionary methods: use getDouble, putDouble and addDouble on hot
+ * paths instead.
+ *
+ * Null keys and values are not supported.
+ */
+public class IntDoubleDictionary implements IDictionary<Integer, Double> {
+    private static final int INITIAL_CAPACITY = 8;
+
+    // Linear probing slows down quickly once the table is more than half full
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private int[] keys;
+    private double[] values;
+    private boolean[] used;
+    private int size;
+    private int maxSize;
+
+    /**
+     * Receives the pairs of an IntDoubleDictionary without boxing them.
+     */
+    @FunctionalInterface
+    public interface IntDoubleConsumer {
+        void accept(int key, double value);
+    }
+
+    public IntDoubleDictionary() {
+        this(0);
+    }
+
+    /**
+     * Constructs a dictionary that can hold the given number of pairs without resizing.
+     *
+     * @throws IllegalArgumentException  if expectedSize is negative
+     */
+    public IntDoubleDictionary(int expectedSize) {
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException("Expected size must not be negative");
+        }
+        int capacity = INITIAL_CAPACITY;
+        while (capacity * LOAD_FACTOR < expectedSize) {
+            capacity *= 2;
+        }
+        this.allocate(capacity);
+    }
+
+    /**
+     * Returns the value corresponding to the given key.
+     *
+     * @throws NoSuchKeyException if the dictionary does not contain the given key.
+     */
+    public double getDouble(int key) {
+        int index = this.indexOf(key);
+        if (!this.used[index]) {
+            throw new NoSuchKeyException();
+        }
+        return this.values[index];
+    }
+
+    /**
+     * Returns the value corresponding to the given key, or the default value if the
+     * dictionary does not contain the key.
+     */
+    public double getDoubleOrDefault(int key, double defaultValue) {
+        int index = this.indexOf(key);
+        return this.used[index] ? this.values[index] : defaultValue;
+    }
+
+    /**
+     * Adds the key-value pair to the dictionary, replacing the value if the key
+     * already exists.
+     */
+    public void putDouble(int key, double value) {
+        int index = this.indexOf(key);
+        if (!this.used[index]) {
+            index = this.insertAt(index, key);
+        }
+        this.values[index] = value;
+    }
+
+    /**
+     * Adds the given amount to the value corresponding to the given key, treating a
+     * missing key as 0.0, and returns the new value.
+     */
+    public double addDouble(int key, double amount) {
+        int index = this.indexOf(key);
+        if (!this.used[index]) {
+            index = this.insertAt(index, key);
+            this.values[index] = amount;
+        } else {
+            this.values[index] += amount;
+        }
+        return this.values[index];
+    }
+
+    /**
+     * Returns 'true' if the dictionary contains the given key and 'false' otherwise.
+     */
+    public boolean containsKey(int key) {
+        return this.used[this.indexOf(key)];
+    }
+
+    /**
+     * Passes every key-value pair in this dictionary to the consumer, without boxing.
+     */
+    public void forEachDouble(IntDoubleConsumer consumer) {
+        for (int i = 0; i < this.keys.length; i++) {
+            if (this.used[i]) {
+                consumer.accept(this.keys[i], this.values[i]);
+            }
+        }
+    }
+
+    @Override
+    public Double get(Integer key) {
+        return this.getDouble(key);
+    }
+
+    @Override
+    public Double getOrDefault(Integer key, Double defaultValue) {
+        int index = this.indexOf(key);
+        return this.used[index] ? Double.valueOf(this.values[index]) : defaultValue;
+    }
+
+    @Override
+    public void put(Integer key, Double value) {
+        this.putDouble(key, value);
+    }
+
+    @Override
+    public Double remove(Integer key) {
+        int index = this.indexOf(key);
+        if (!this.used[index]) {
+            throw new NoSuchKeyException();
+        }
+        double value = this.values[index];
+        this.removeAt(index);
+        return value;
+    }
+
+    @Override
+    public boolean containsKey(Integer key) {
+        return this.containsKey(key.intValue());
+    }
+
+    @Override
+    public int size() {
+        return this.size;
+    }
+
+    @Override
+    public Iterator<KVPair<Integer, Double>> iterator() {
+        return new IntDoubleIterator(this.keys, this.values, this.used);
+    }
+
+    /**
+     * Returns the slot holding the given key, or the empty slot where it belongs if
+     * the key is not in the dictionary.
+     */
+    private int indexOf(int key) {
+        int mask = this.keys.length - 1;
+        int index = spread(key) & mask;
+        while (this.used[index] && this.keys[index] != key) {
+            index = (index + 1) & mask;
+        }
+        return index;
+    }
+
+    /**
+     * Stores the given key in the given empty slot, resizing first if necessary.
+     * Returns the slot the key ended up in.
+     */
+    private int insertAt(int index, int key) {
+        if (this.size >= this.maxSize) {
+            int oldSize = this.size;
+            int[] oldKeys = this.keys;
+            double[] oldValues = this.values;
+            boolean[] oldUsed = this.used;
+            this.allocate(oldKeys.length * 2);
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldUsed[i]) {
+                    int newIndex = this.indexOf(oldKeys[i]);
+                    this.keys[newIndex] = oldKeys[i];
+                    this.values[newIndex] = oldValues[i];
+                    this.used[newIndex] = true;
+                }
+            }
+            this.size = oldSize;
+            index = this.indexOf(key);
+        }
+        this.keys[index] = key;
+        this.used[index] = true;
+        this.size++;
+        return index;
+    }
+
+    /**
+     * Empties the given slot, shifting back any later pairs in the same run so
+     * lookups never stop early at the hole.
+     */
+    private void removeAt(int index) {
+        int mask = this.keys.length - 1;
+        int hole = index;
+        int next = (index + 1) & mask;
+        while (this.used[next]) {
+            int home = spread(this.keys[next]) & mask;
+            // The pair can fill the hole unless its home slot lies between the hole and itself
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                this.keys[hole] = this.keys[next];
+                this.values[hole] = this.values[next];
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        this.used[hole] = false;
+        this.size--;
+    }
+
+    private void allocate(int capacity) {
+        this.keys = new int[capacity];
+        this.values = new double[capacity];
+        this.used = new boolean[capacity];
+        this.size = 0;
+        this.maxSize = (int) (capacity * LOAD_FACTOR);
+    }
+
+    /**
+     * Scrambles the bits of the key, so runs of consecutive keys such as document
+     * ids are spread across the table.
+     */
+    private static int spread(int key) {
+        int hash = key * 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    private static class IntDoubleIterator implements Iterator<KVPair<Integer, Double>> {
+        private int[] keys;
+        private double[] values;
+        private boolean[] used;
+        private int index;
+
+        public IntDoubleIterator(int[] keys, double[] values, boolean[] used) {
+            this.keys = keys;
+            this.values = values;
+            this.used = used;
+            this.index = 0;
+            this.skipEmptySlots();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return this.index < this.keys.length;
+        }
+
+        @Override
+        public KVPair<Integer, Double> next() {
+            if (!this.hasNext()) {
+                throw new NoSuchElementException();
+            }
+            KVPair<Integer, Double> pair = new KVPair<>(this.keys[this.index], this.values[this.index]);
+            this.index++;
+            this.skipEmptySlots();
+            return pair;
+        }
+
+        private void skipEmptySlots() {
+            while (this.index < this.keys.length && !this.used[this.index]) {
+                this.index++;
+            }
+        }
+    }
+}
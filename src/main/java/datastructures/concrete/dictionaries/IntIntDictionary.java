@@ -0,0 +1,285 @@
+package datastructures.concrete.dictionaries;
+
+import datastructures.concrete.KVPair;
+import datastructures.interfaces.IDictionary;
+import misc.exceptions.NoSuchKeyException;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A dictionary mapping primitive ints to primitive ints, such as ids to counts.
+ *
+ * The pairs are stored directly in parallel arrays using open addressing with linear
+ * probing, so no objects are allocated per pair. Keys and values are only boxed when
+ * used through the IDictionary methods: use getInt, putInt and addInt on hot
+ * paths instead.
+ *
+ * Null keys and values are not supported.
+ */
+public class IntIntDictionary implements IDictionary<Integer, Integer> {
+    private static final int INITIAL_CAPACITY = 8;
+
+    // Linear probing slows down quickly once the table is more than half full
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private int[] keys;
+    private int[] values;
+    private boolean[] used;
+    private int size;
+    private int maxSize;
+
+    /**
+     * Receives the pairs of an IntIntDictionary without boxing them.
+     */
+    @FunctionalInterface
+    public interface IntIntConsumer {
+        void accept(int key, int value);
+    }
+
+    public IntIntDictionary() {
+        this(0);
+    }
+
+    /**
+     * Constructs a dictionary that can hold the given number of pairs without resizing.
+     *
+     * @throws IllegalArgumentException  if expectedSize is negative
+     */
+    public IntIntDictionary(int expectedSize) {
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException("Expected size must not be negative");
+        }
+        int capacity = INITIAL_CAPACITY;
+        while (capacity * LOAD_FACTOR < expectedSize) {
+            capacity *= 2;
+        }
+        this.allocate(capacity);
+    }
+
+    /**
+     * Returns the value corresponding to the given key.
+     *
+     * @throws NoSuchKeyException if the dictionary does not contain the given key.
+     */
+    public int getInt(int key) {
+        int index = this.indexOf(key);
+        if (!this.used[index]) {
+            throw new NoSuchKeyException();
+        }
+        return this.values[index];
+    }
+
+    /**
+     * Returns the value corresponding to the given key, or the default value if the
+     * dictionary does not contain the key.
+     */
+    public int getIntOrDefault(int key, int defaultValue) {
+        int index = this.indexOf(key);
+        return this.used[index] ? this.values[index] : defaultValue;
+    }
+
+    /**
+     * Adds the key-value pair to the dictionary, replacing the value if the key
+     * already exists.
+     */
+    public void putInt(int key, int value) {
+        int index = this.indexOf(key);
+        if (!this.used[index]) {
+            index = this.insertAt(index, key);
+        }
+        this.values[index] = value;
+    }
+
+    /**
+     * Adds the given amount to the value corresponding to the given key, treating a
+     * missing key as 0, and returns the new value.
+     */
+    public int addInt(int key, int amount) {
+        int index = this.indexOf(key);
+        if (!this.used[index]) {
+            index = this.insertAt(index, key);
+            this.values[index] = amount;
+        } else {
+            this.values[index] += amount;
+        }
+        return this.values[index];
+    }
+
+    /**
+     * Returns 'true' if the dictionary contains the given key and 'false' otherwise.
+     */
+    public boolean containsKey(int key) {
+        return this.used[this.indexOf(key)];
+    }
+
+    /**
+     * Passes every key-value pair in this dictionary to the consumer, without boxing.
+     */
+    public void forEachInt(IntIntConsumer consumer) {
+        for (int i = 0; i < this.keys.length; i++) {
+            if (this.used[i]) {
+                consumer.accept(this.keys[i], this.values[i]);
+            }
+        }
+    }
+
+    @Override
+    public Integer get(Integer key) {
+        return this.getInt(key);
+    }
+
+    @Override
+    public Integer getOrDefault(Integer key, Integer defaultValue) {
+        int index = this.indexOf(key);
+        return this.used[index] ? Integer.valueOf(this.values[index]) : defaultValue;
+    }
+
+    @Override
+    public void put(Integer key, Integer value) {
+        this.putInt(key, value);
+    }
+
+    @Override
+    public Integer remove(Integer key) {
+        int index = this.indexOf(key);
+        if (!this.used[index]) {
+            throw new NoSuchKeyException();
+        }
+        int value = this.values[index];
+        this.removeAt(index);
+        return value;
+    }
+
+    @Override
+    public boolean containsKey(Integer key) {
+        return this.containsKey(key.intValue());
+    }
+
+    @Override
+    public int size() {
+        return this.size;
+    }
+
+    @Override
+    public Iterator<KVPair<Integer, Integer>> iterator() {
+        return new IntIntIterator(this.keys, this.values, this.used);
+    }
+
+    /**
+     * Returns the slot holding the given key, or the empty slot where it belongs if
+     * the key is not in the dictionary.
+     */
+    private int indexOf(int key) {
+        int mask = this.keys.length - 1;
+        int index = spread(key) & mask;
+        while (this.used[index] && this.keys[index] != key) {
+            index = (index + 1) & mask;
+        }
+        return index;
+    }
+
+    /**
+     * Stores the given key in the given empty slot, resizing first if necessary.
+     * Returns the slot the key ended up in.
+     */
+    private int insertAt(int index, int key) {
+        if (this.size >= this.maxSize) {
+            int oldSize = this.size;
+            int[] oldKeys = this.keys;
+            int[] oldValues = this.values;
+            boolean[] oldUsed = this.used;
+            this.allocate(oldKeys.length * 2);
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldUsed[i]) {
+                    int newIndex = this.indexOf(oldKeys[i]);
+                    this.keys[newIndex] = oldKeys[i];
+                    this.values[newIndex] = oldValues[i];
+                    this.used[newIndex] = true;
+                }
+            }
+            this.size = oldSize;
+            index = this.indexOf(key);
+        }
+        this.keys[index] = key;
+        this.used[index] = true;
+        this.size++;
+        return index;
+    }
+
+    /**
+     * Empties the given slot, shifting back any later pairs in the same run so
+     * lookups never stop early at the hole.
+     */
+    private void removeAt(int index) {
+        int mask = this.keys.length - 1;
+        int hole = index;
+        int next = (index + 1) & mask;
+        while (this.used[next]) {
+            int home = spread(this.keys[next]) & mask;
+            // The pair can fill the hole unless its home slot lies between the hole and itself
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                this.keys[hole] = this.keys[next];
+                this.values[hole] = this.values[next];
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        this.used[hole] = false;
+        this.size--;
+    }
+
+    private void allocate(int capacity) {
+        this.keys = new int[capacity];
+        this.values = new int[capacity];
+        this.used = new boolean[capacity];
+        this.size = 0;
+        this.maxSize = (int) (capacity * LOAD_FACTOR);
+    }
+
+    /**
+     * Scrambles the bits of the key, so runs of consecutive keys such as document
+     * ids are spread across the table.
+     */
+    private static int spread(int key) {
+        int hash = key * 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    private static class IntIntIterator implements Iterator<KVPair<Integer, Integer>> {
+        private int[] keys;
+        private int[] values;
+        private boolean[] used;
+        private int index;
+
+        public IntIntIterator(int[] keys, int[] values, boolean[] used) {
+            this.keys = keys;
+            this.values = values;
+            this.used = used;
+            this.index = 0;
+            this.skipEmptySlots();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return this.index < this.keys.length;
+        }
+
+        @Override
+        public KVPair<Integer, Integer> next() {
+            if (!this.hasNext()) {
+                throw new NoSuchElementException();
+            }
+            KVPair<Integer, Integer> pair = new KVPair<>(this.keys[this.index], this.values[this.index]);
+            this.index++;
+            this.skipEmptySlots();
+            return pair;
+        }
+
+        private void skipEmptySlots() {
+            while (this.index < this.keys.length && !this.used[this.index]) {
+                this.index++;
+            }
+        }
+    }
+}
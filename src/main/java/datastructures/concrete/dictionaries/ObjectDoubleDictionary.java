@@ -0,0 +1,279 @@
+package datastructures.concrete.dictionaries;
+
+import datastructures.concrete.KVPair;
+import datastructures.interfaces.IDictionary;
+import misc.exceptions.NoSuchKeyException;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.ObjDoubleConsumer;
+
+/**
+ * A dictionary mapping keys to primitive doubles.
+ *
+ * Unlike ChainedHashDictionary, the pairs are stored directly in two parallel arrays
+ * using open addressing with linear probing, so no objects are allocated per pair.
+ * Values are only boxed when read or written through the IDictionary methods: use
+ * getDouble, putDouble and addDouble on hot paths instead.
+ *
+ * Null keys are supported; null values are not.
+ */
+public class ObjectDoubleDictionary<K> implements IDictionary<K, Double> {
+    private static final int INITIAL_CAPACITY = 8;
+
+    // Linear probing slows down quickly once the table is more than half full
+    private static final float LOAD_FACTOR = 0.5f;
+
+    // Empty slots hold null, so a null key is stored as this object instead
+    private static final Object NULL_KEY = new Object();
+
+    private Object[] keys;
+    private double[] values;
+    private int size;
+    private int maxSize;
+
+    public ObjectDoubleDictionary() {
+        this(0);
+    }
+
+    /**
+     * Constructs a dictionary that can hold the given number of pairs without resizing.
+     *
+     * @throws IllegalArgumentException  if expectedSize is negative
+     */
+    public ObjectDoubleDictionary(int expectedSize) {
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException("Expected size must not be negative");
+        }
+        int capacity = INITIAL_CAPACITY;
+        while (capacity * LOAD_FACTOR < expectedSize) {
+            capacity *= 2;
+        }
+        this.allocate(capacity);
+    }
+
+    /**
+     * Returns the value corresponding to the given key.
+     *
+     * @throws NoSuchKeyException if the dictionary does not contain the given key.
+     */
+    public double getDouble(K key) {
+        int index = this.indexOf(mask(key));
+        if (this.keys[index] == null) {
+            throw new NoSuchKeyException();
+        }
+        return this.values[index];
+    }
+
+    /**
+     * Returns the value corresponding to the given key, or the default value if the
+     * dictionary does not contain the key.
+     */
+    public double getDoubleOrDefault(K key, double defaultValue) {
+        int index = this.indexOf(mask(key));
+        return this.keys[index] == null ? defaultValue : this.values[index];
+    }
+
+    /**
+     * Adds the key-value pair to the dictionary, replacing the value if the key
+     * already exists.
+     */
+    public void putDouble(K key, double value) {
+        Object masked = mask(key);
+        int index = this.indexOf(masked);
+        if (this.keys[index] == null) {
+            index = this.insertAt(index, masked);
+        }
+        this.values[index] = value;
+    }
+
+    /**
+     * Adds the given amount to the value corresponding to the given key, treating a
+     * missing key as 0.0, and returns the new value.
+     */
+    public double addDouble(K key, double amount) {
+        Object masked = mask(key);
+        int index = this.indexOf(masked);
+        if (this.keys[index] == null) {
+            index = this.insertAt(index, masked);
+            this.values[index] = amount;
+        } else {
+            this.values[index] += amount;
+        }
+        return this.values[index];
+    }
+
+    /**
+     * Passes every key-value pair in this dictionary to the consumer, without boxing.
+     */
+    @SuppressWarnings("unchecked")
+    public void forEachDouble(ObjDoubleConsumer<? super K> consumer) {
+        for (int i = 0; i < this.keys.length; i++) {
+            if (this.keys[i] != null) {
+                consumer.accept((K) unmask(this.keys[i]), this.values[i]);
+            }
+        }
+    }
+
+    @Override
+    public Double get(K key) {
+        return this.getDouble(key);
+    }
+
+    @Override
+    public Double getOrDefault(K key, Double defaultValue) {
+        int index = this.indexOf(mask(key));
+        return this.keys[index] == null ? defaultValue : Double.valueOf(this.values[index]);
+    }
+
+    @Override
+    public void put(K key, Double value) {
+        this.putDouble(key, value);
+    }
+
+    @Override
+    public Double remove(K key) {
+        int index = this.indexOf(mask(key));
+        if (this.keys[index] == null) {
+            throw new NoSuchKeyException();
+        }
+        double value = this.values[index];
+        this.removeAt(index);
+        return value;
+    }
+
+    @Override
+    public boolean containsKey(K key) {
+        return this.keys[this.indexOf(mask(key))] != null;
+    }
+
+    @Override
+    public int size() {
+        return this.size;
+    }
+
+    @Override
+    public Iterator<KVPair<K, Double>> iterator() {
+        return new ObjectDoubleIterator<K>(this.keys, this.values);
+    }
+
+    /**
+     * Returns the slot holding the given key, or the empty slot where it belongs if
+     * the key is not in the dictionary.
+     */
+    private int indexOf(Object masked) {
+        int mask = this.keys.length - 1;
+        int index = spread(masked.hashCode()) & mask;
+        while (this.keys[index] != null && !this.keys[index].equals(masked)) {
+            index = (index + 1) & mask;
+        }
+        return index;
+    }
+
+    /**
+     * Stores the given key in the given empty slot, resizing first if necessary.
+     * Returns the slot the key ended up in.
+     */
+    private int insertAt(int index, Object masked) {
+        if (this.size >= this.maxSize) {
+            int oldSize = this.size;
+            Object[] oldKeys = this.keys;
+            double[] oldValues = this.values;
+            this.allocate(oldKeys.length * 2);
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != null) {
+                    int newIndex = this.indexOf(oldKeys[i]);
+                    this.keys[newIndex] = oldKeys[i];
+                    this.values[newIndex] = oldValues[i];
+                }
+            }
+            this.size = oldSize;
+            index = this.indexOf(masked);
+        }
+        this.keys[index] = masked;
+        this.size++;
+        return index;
+    }
+
+    /**
+     * Empties the given slot, shifting back any later pairs in the same run so
+     * lookups never stop early at the hole.
+     */
+    private void removeAt(int index) {
+        int mask = this.keys.length - 1;
+        int hole = index;
+        int next = (index + 1) & mask;
+        while (this.keys[next] != null) {
+            int home = spread(this.keys[next].hashCode()) & mask;
+            // The pair can fill the hole unless its home slot lies between the hole and itself
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                this.keys[hole] = this.keys[next];
+                this.values[hole] = this.values[next];
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        this.keys[hole] = null;
+        this.size--;
+    }
+
+    private void allocate(int capacity) {
+        this.keys = new Object[capacity];
+        this.values = new double[capacity];
+        this.size = 0;
+        this.maxSize = (int) (capacity * LOAD_FACTOR);
+    }
+
+    /**
+     * Scrambles the bits of the hash code, so keys with similar hash codes do not
+     * end up in the same run of slots.
+     */
+    private static int spread(int hashCode) {
+        int hash = hashCode * 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    private static Object mask(Object key) {
+        return key == null ? NULL_KEY : key;
+    }
+
+    private static Object unmask(Object key) {
+        return key == NULL_KEY ? null : key;
+    }
+
+    private static class ObjectDoubleIterator<K> implements Iterator<KVPair<K, Double>> {
+        private Object[] keys;
+        private double[] values;
+        private int index;
+
+        public ObjectDoubleIterator(Object[] keys, double[] values) {
+            this.keys = keys;
+            this.values = values;
+            this.index = 0;
+            this.skipEmptySlots();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return this.index < this.keys.length;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public KVPair<K, Double> next() {
+            if (!this.hasNext()) {
+                throw new NoSuchElementException();
+            }
+            KVPair<K, Double> pair = new KVPair<>((K) unmask(this.keys[this.index]), this.values[this.index]);
+            this.index++;
+            this.skipEmptySlots();
+            return pair;
+        }
+
+        private void skipEmptySlots() {
+            while (this.index < this.keys.length && this.keys[this.index] == null) {
+                this.index++;
+            }
+        }
+    }
+}
@@ -1,61 +1,189 @@
 package search;
 
-import datastructures.concrete.ChainedHashSet;
-import datastructures.concrete.DoubleLinkedList;
+import datastructures.concrete.ArrayList;
 import datastructures.interfaces.IList;
 import datastructures.interfaces.ISet;
-import misc.Searcher;
+import search.analyzers.Bm25Model;
+import search.analyzers.CosineModel;
+import search.analyzers.ITermIndex;
 import search.analyzers.PageRankAnalyzer;
+import search.analyzers.PreparedQuery;
+import search.analyzers.RelevanceModel;
+import search.analyzers.ScoreConsumer;
 import search.analyzers.TfIdfAnalyzer;
+import search.analyzers.WandSearcher;
+import search.index.EngineSnapshot;
 import search.misc.exceptions.DataExtractionException;
 import search.misc.Bridge;
+import search.models.DocumentRegistry;
 import search.models.Result;
 import search.models.Webpage;
-import search.models.WebpageSummary;
 
 import java.io.IOException;
 import java.net.URI;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntToDoubleFunction;
+import java.util.function.ObjIntConsumer;
+import java.util.stream.Stream;
 
 public class SearchEngine {
     public static double PAGE_RANK_DECAY = 0.85;
     public static double PAGE_RANK_EPSILON = 0.0001;
     public static int PAGE_RANK_ITERATION_LIMIT = 200;
+    public static int PAGE_RANK_PARALLELISM = Runtime.getRuntime().availableProcessors();
+    public static int LOADING_WORKERS = Runtime.getRuntime().availableProcessors();
 
-    private ISet<WebpageSummary> pages;
-    private TfIdfAnalyzer tfIdfAnalyzer;
-    private PageRankAnalyzer pageRankAnalyzer;
+    // When enabled, the computed index is saved to 'data/<folder>.snapshot' and
+    // reused on the next startup as long as no page has changed since.
+    public static boolean USE_SNAPSHOT = true;
+
+    // When enabled, queries skip pages that provably cannot make the top k (see
+    // WandSearcher) instead of scoring every page; the results are the same.
+    public static boolean USE_DYNAMIC_PRUNING = true;
+
+    // Queries whose words appear in at least PARALLEL_SEARCH_MIN_POSTINGS places in
+    // total are split across SEARCH_PARALLELISM threads, each searching a range of
+    // pages. Set SEARCH_PARALLELISM to 1 to answer every query on a single thread.
+    public static int SEARCH_PARALLELISM = Runtime.getRuntime().availableProcessors();
+    public static long PARALLEL_SEARCH_MIN_POSTINGS = 200000;
+
+    // How pages are scored against queries: by the cosine similarity of their TF-IDF
+    // vectors, or using BM25 (see Bm25Model for what its parameters do).
+    public static RelevanceModel.Kind RELEVANCE_MODEL = RelevanceModel.Kind.COSINE;
+    public static double BM25_K1 = Bm25Model.DEFAULT_K1;
+    public static double BM25_B = Bm25Model.DEFAULT_B;
+
+    // Queries are served from whichever index is available: the analyzers we just
+    // computed, or the memory-mapped segment of a snapshot.
+    private DocumentRegistry registry;
+    private RelevanceModel model;
+    private IntToDoubleFunction pageRanks;
+    private WandSearcher searcher;
+    private ForkJoinPool searchPool;
+
+    // Bumped every time the index queries are served from changes, so cached results
+    // computed from an older one can be recognized (see QueryCache)
+    private volatile long generation;
 
     public SearchEngine(String dataFolderName) {
+        this(Paths.get("data", dataFolderName), Paths.get("data", dataFolderName + ".snapshot"));
+    }
+
+    /**
+     * Indexes the webpages stored under the given folder, saving the index to (or
+     * restoring it from) the given snapshot if USE_SNAPSHOT is enabled.
+     */
+    SearchEngine(Path root, Path snapshot) {
+        // The pool's threads are daemons, so it never needs shutting down
+        this.searchPool = new ForkJoinPool(Math.max(1, SEARCH_PARALLELISM));
+
+        Path[] paths = this.findWebpages(root);
+        int pagesChecksum = EngineSnapshot.getPagesChecksum(root, paths);
+
+        if (USE_SNAPSHOT && this.loadSnapshot(snapshot, root, paths, pagesChecksum)) {
+            return;
+        }
+
         long start = System.currentTimeMillis();
-        ISet<Webpage> webpages = this.collectWebpages(Paths.get("data", dataFolderName));
+        ISet<Webpage> webpages = this.collectWebpages(paths);
         long end = System.currentTimeMillis() - start;
         System.out.println("Done loading pages (" + (end / 1000.0) + " sec)");
 
-        this.pages = this.extractWebpageSummaries(webpages);
+        this.registry = new DocumentRegistry(webpages);
         System.out.println("Done extracting");
 
         start = System.currentTimeMillis();
-        this.tfIdfAnalyzer = new TfIdfAnalyzer(webpages);
-        this.pageRankAnalyzer = new PageRankAnalyzer(
+        TfIdfAnalyzer tfIdfAnalyzer = new TfIdfAnalyzer(webpages, this.registry);
+        PageRankAnalyzer pageRankAnalyzer = new PageRankAnalyzer(
                 webpages,
+                this.registry,
                 PAGE_RANK_DECAY,
                 PAGE_RANK_EPSILON,
-                PAGE_RANK_ITERATION_LIMIT);
+                PAGE_RANK_ITERATION_LIMIT,
+                PAGE_RANK_PARALLELISM);
         end = System.currentTimeMillis() - start;
         System.out.println("Done indexing (" + (end / 1000.0) + " sec)");
+
+        this.serveFrom(tfIdfAnalyzer.getInvertedIndex(), pageRankAnalyzer::computePageRank);
+
+        // Once saved, serve from the segment so the analyzers can be garbage collected
+        if (USE_SNAPSHOT && this.saveSnapshot(snapshot, tfIdfAnalyzer, pageRankAnalyzer, paths.length, pagesChecksum)) {
+            this.loadSnapshot(snapshot, paths.length, pagesChecksum);
+        }
+    }
+
+    /**
+     * Answers all queries from now on using the given index and page ranks.
+     */
+    private void serveFrom(ITermIndex index, IntToDoubleFunction ranks) {
+        if (RELEVANCE_MODEL == RelevanceModel.Kind.BM25) {
+            this.model = new Bm25Model(index, BM25_K1, BM25_B);
+        } else {
+            this.model = new CosineModel(index);
+        }
+        this.pageRanks = ranks;
+        this.searcher = new WandSearcher(this.model, this::computeBoost);
+        this.generation++;
+    }
+
+    /**
+     * Returns a number that increases every time this engine switches to a new index.
+     */
+    public long getGeneration() {
+        return this.generation;
+    }
+
+    /**
+     * Passes every word in the index to the consumer, along with the number of
+     * documents containing it.
+     */
+    public void forEachWord(ObjIntConsumer<String> consumer) {
+        this.model.getIndex().forEachWord(consumer);
+    }
+
+    /**
+     * Weighs the given query and looks up its words, so it can be searched for or
+     * scored any number of times without repeating that work.
+     *
+     * The prepared query is only valid until this engine switches to a new index (see
+     * getGeneration).
+     */
+    public PreparedQuery prepare(IList<String> query) {
+        return this.model.prepare(query);
     }
 
     public double computeScore(IList<String> query, URI uri) {
-        double tfIdf = this.tfIdfAnalyzer.computeRelevance(query, uri);
-        double pageRank = this.pageRankAnalyzer.computePageRank(uri);
+        return this.computeScore(this.prepare(query), uri);
+    }
+
+    /**
+     * Precondition: the query must have been prepared by this engine's current index.
+     */
+    public double computeScore(PreparedQuery query, URI uri) {
+        int docId = this.registry.getId(uri);
+        return this.combineScores(docId, this.model.computeRelevance(query, docId));
+    }
+
+    private double combineScores(int docId, double tfIdf) {
+        return tfIdf * this.computeBoost(docId);
+    }
+
+    /**
+     * Returns the factor a page's tfIdf score is multiplied by to get its final score.
+     */
+    private double computeBoost(int docId) {
+        double pageRank = this.pageRanks.applyAsDouble(docId);
 
         if (pageRank <= 0.0) {
             throw new IllegalStateException(String.format(
                     "Page '%s' had a page rank of '%f'; all page ranks should be positive and non-zero.",
-                    uri, pageRank));
+                    this.registry.getUri(docId), pageRank));
         }
 
         // We are combining these two scores in a fairly arbitrary way.
@@ -79,45 +207,153 @@ public class SearchEngine {
         // but it's still a pretty ad-hoc approach. Feel free to adjust or
         // change this formula: we will be grading your TfIdfAnalyzer and
         // PageRankAnalyzer classes separately, but not this method.
-        return tfIdf * Math.sqrt(pageRank);
+        return Math.sqrt(pageRank);
     }
 
     public IList<Result> getTopKResults(IList<String> query, int k) {
-        IList<Result> results = new DoubleLinkedList<>();
-
-        for (WebpageSummary summary: this.pages) {
-            double score = this.computeScore(query, summary.getUri());
-            results.add(new Result(summary, score));
-        }
+        return this.getTopKResults(this.prepare(query), k);
+    }
 
-        IList<Result> topK = Searcher.topKSort(k, results);
+    /**
+     * Precondition: the query must have been prepared by this engine's current index.
+     */
+    public IList<Result> getTopKResults(PreparedQuery query, int k) {
+        IList<Result> results = new ArrayList<>();
+        ScoreConsumer collector = (docId, score) -> {
+            results.add(new Result(this.registry.getSummary(docId), score));
+        };
 
-        IList<Result> reversed = new DoubleLinkedList<>();
-        for (Result res : topK) {
-            reversed.insert(0, res);
+        // Only pages sharing at least one word with the query can have a non-zero score
+        if (USE_DYNAMIC_PRUNING) {
+            this.searcher.searchInParallel(query, k, this.searchPool, PARALLEL_SEARCH_MIN_POSTINGS, collector);
+        } else {
+            this.searcher.searchExhaustively(query, k, collector);
         }
-
-        return reversed;
+        return results;
     }
 
-    private ISet<Webpage> collectWebpages(Path root) {
-        try {
-            return Files.walk(root)
+    /**
+     * Returns the paths of every webpage stored under the given folder.
+     */
+    private Path[] findWebpages(Path root) {
+        try (Stream<Path> files = Files.walk(root)) {
+            return files
                     .filter(Files::isRegularFile)
                     .filter(path -> path.toString().endsWith(".htm") || path.toString().endsWith(".html"))
+                    .toArray(Path[]::new);
+        } catch (IOException ex) {
+            throw new DataExtractionException("Could not find given root folder", ex);
+        }
+    }
+
+    /**
+     * Loads every given webpage, using LOADING_WORKERS threads.
+     */
+    private ISet<Webpage> collectWebpages(Path[] paths) {
+        // A parallel stream started from within a ForkJoinPool runs on that pool's threads
+        ForkJoinPool pool = new ForkJoinPool(LOADING_WORKERS);
+        try {
+            return pool.submit(() -> Arrays.stream(paths)
+                    .parallel()
                     .map(Path::toUri)
                     .map(Webpage::load)
-                    .collect(Bridge.toISet());
+                    .collect(Bridge.toISet())).get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new DataExtractionException("Interrupted while loading webpages", ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw new DataExtractionException("Could not load webpages", ex.getCause());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Restores this engine from the given snapshot if it is newer than the data folder
+     * and every page in it, and was computed from the same set of pages. Returns 'true'
+     * if the snapshot was used.
+     *
+     * Comparing times alone would miss pages deleted from a subfolder, or copied in with
+     * their original modification time kept, which is why the snapshot also records the
+     * number of pages and a checksum of their paths.
+     */
+    private boolean loadSnapshot(Path snapshot, Path root, Path[] paths, int pagesChecksum) {
+        try {
+            if (!Files.exists(snapshot)) {
+                return false;
+            }
+            FileTime snapshotTime = Files.getLastModifiedTime(snapshot);
+            if (Files.getLastModifiedTime(root).compareTo(snapshotTime) >= 0) {
+                return false;
+            }
+            for (Path path : paths) {
+                if (Files.getLastModifiedTime(path).compareTo(snapshotTime) >= 0) {
+                    return false;
+                }
+            }
+
+            long start = System.currentTimeMillis();
+            boolean loaded = this.loadSnapshot(snapshot, paths.length, pagesChecksum);
+            long end = System.currentTimeMillis() - start;
+            if (loaded) {
+                System.out.println("Done loading snapshot (" + (end / 1000.0) + " sec)");
+            }
+            return loaded;
         } catch (IOException ex) {
-            throw new DataExtractionException("Could not find given root folder", ex);
+            System.out.println("Could not use snapshot, reindexing: " + ex.getMessage());
+            return false;
         }
     }
 
-    private ISet<WebpageSummary> extractWebpageSummaries(ISet<Webpage> pages) {
-        ISet<WebpageSummary> output = new ChainedHashSet<>();
-        for (Webpage page : pages) {
-            output.add(page.getSummary());
+    /**
+     * Switches this engine over to the registry and index segment of the given snapshot.
+     * Returns 'true' if the snapshot could be opened; otherwise, nothing is changed.
+     */
+    private boolean loadSnapshot(Path snapshot, int pageCount, int pagesChecksum) {
+        try {
+            EngineSnapshot loaded = EngineSnapshot.load(
+                    snapshot,
+                    PAGE_RANK_DECAY,
+                    PAGE_RANK_EPSILON,
+                    PAGE_RANK_ITERATION_LIMIT,
+                    pageCount,
+                    pagesChecksum);
+            this.registry = loaded.getRegistry();
+            this.serveFrom(loaded.getIndex(), loaded.getIndex()::getPageRank);
+            return true;
+        } catch (IOException | DataExtractionException ex) {
+            System.out.println("Could not use snapshot: " + ex.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Saves the given analyzers to the given snapshot. Returns 'true' if it was saved.
+     */
+    private boolean saveSnapshot(Path snapshot,
+                                 TfIdfAnalyzer tfIdfAnalyzer,
+                                 PageRankAnalyzer pageRankAnalyzer,
+                                 int pageCount,
+                                 int pagesChecksum) {
+        try {
+            EngineSnapshot.save(
+                    snapshot,
+                    this.registry,
+                    tfIdfAnalyzer,
+                    pageRankAnalyzer,
+                    PAGE_RANK_DECAY,
+                    PAGE_RANK_EPSILON,
+                    PAGE_RANK_ITERATION_LIMIT,
+                    pageCount,
+                    pagesChecksum);
+            return true;
+        } catch (IOException ex) {
+            // The engine still works without a snapshot; the next startup just reindexes
+            System.out.println("Could not save snapshot: " + ex.getMessage());
+            return false;
         }
-        return output;
     }
 }
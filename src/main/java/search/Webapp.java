@@ -1,17 +1,30 @@
 package search;
 
+import com.github.mustachejava.DefaultMustacheFactory;
+import com.github.mustachejava.Mustache;
+import com.github.mustachejava.MustacheFactory;
+import datastructures.concrete.ArrayList;
 import datastructures.interfaces.IList;
+import search.cache.QueryCache;
 import search.models.Result;
 import search.SearchEngine;
+import search.misc.JsonWriter;
 import search.misc.WordTokenizer;
-import spark.ModelAndView;
+import search.suggest.CompletionTrie;
 import spark.Request;
 import spark.Response;
 import spark.Service;
-import spark.template.mustache.MustacheTemplateEngine;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * Contains all code to manage and serve our website.
@@ -28,8 +41,38 @@ public class Webapp {
      */
     private static final String TEMPLATE_FILES = "webapp/templates";
 
+    private static final String[] TEMPLATE_NAMES = {"main.mustache", "search.mustache"};
+
+    // When enabled, templates are recompiled on every request so edits to them show
+    // up without restarting the server. Otherwise they are compiled once, at startup.
+    public static boolean RELOAD_TEMPLATES = false;
+
+    // Repeated queries are answered from a cache of recent results instead of
+    // searching the index again.
+    public static QueryCache.Eviction QUERY_CACHE_EVICTION = QueryCache.Eviction.TINY_LFU;
+    public static long QUERY_CACHE_MAX_ENTRIES = 10000;
+
+    // When positive, the cache is limited to roughly this many bytes instead of
+    // QUERY_CACHE_MAX_ENTRIES queries.
+    public static long QUERY_CACHE_MAX_BYTES = 0;
+
+    // The furthest into the results /api/search lets clients page (offset + num_results).
+    public static int MAX_API_RESULTS = 1000;
+
+    // The number of completions /api/suggest answers with. Past queries are remembered
+    // for suggestions, up to SUGGEST_MAX_QUERIES different ones. Words are weighed by
+    // the number of documents containing them, and past queries by the number of times
+    // they were searched for times SUGGEST_QUERY_WEIGHT.
+    public static int SUGGEST_MAX_RESULTS = 10;
+    public static int SUGGEST_MAX_QUERIES = 100000;
+    public static long SUGGEST_QUERY_WEIGHT = 10;
+
     private final String siteName;
     private final SearchEngine engine;
+    private final QueryCache cache;
+    private final CompletionTrie suggestedWords;
+    private final CompletionTrie suggestedQueries;
+    private final Map<String, Mustache> templates;
     private final Service http;
 
     /**
@@ -42,12 +85,30 @@ public class Webapp {
     public Webapp(SearchEngine engine, String siteName, int port) {
         this.engine = engine;
         this.siteName = siteName;
+        this.cache = QUERY_CACHE_MAX_BYTES > 0
+                ? QueryCache.withMaxBytes(QUERY_CACHE_EVICTION, QUERY_CACHE_MAX_BYTES)
+                : QueryCache.withMaxEntries(QUERY_CACHE_EVICTION, QUERY_CACHE_MAX_ENTRIES);
+
+        // Words and past queries are counted in different units, so they are kept
+        // apart and only weighed against each other when suggesting
+        this.suggestedWords = new CompletionTrie(SUGGEST_MAX_RESULTS);
+        engine.forEachWord(this.suggestedWords::add);
+        this.suggestedQueries = new CompletionTrie(SUGGEST_MAX_RESULTS);
+
+        // Compiled templates are immutable, so every request can share them
+        this.templates = new HashMap<>();
+        MustacheFactory factory = new DefaultMustacheFactory(TEMPLATE_FILES);
+        for (String name : TEMPLATE_NAMES) {
+            this.templates.put(name, factory.compile(name));
+        }
 
         this.http = Service.ignite()
                 .staticFileLocation(STATIC_FILES)
                 .port(port);
         this.http.get("/", this::handleMain);
         this.http.get("/search", this::handleSearch);
+        this.http.get("/api/search", this::handleApiSearch);
+        this.http.get("/api/suggest", this::handleApiSuggest);
         this.http.exception(Exception.class, (ex, req, res) -> {
             ex.printStackTrace();
             res.status(500);
@@ -65,24 +126,27 @@ public class Webapp {
     /**
      * Handles all incoming requests for our home page.
      */
-    private String handleMain(Request req, Response res) {
+    private String handleMain(Request req, Response res) throws IOException {
         Map<String, Object> model = new HashMap<>();
         model.put("siteTitle", this.siteName);
 
-        return this.render("main.mustache", model);
+        return this.render(res, "main.mustache", model);
     }
 
     /**
      * Handles all incoming user queries.
      */
-    private String handleSearch(Request req, Response res) {
+    private String handleSearch(Request req, Response res) throws IOException {
         // Get search query
         String query = req.queryParams("query");
         int numResults = Integer.parseInt(req.queryParamOrDefault("num_results", "20"));
 
         // Perform core search
         IList<String> queryTerms = WordTokenizer.extract(query);
-        IList<Result> results = this.engine.getTopKResults(queryTerms, numResults);
+        IList<Result> results = this.search(queryTerms, numResults);
+        if (!results.isEmpty()) {
+            this.recordQuery(queryTerms);
+        }
 
         // Render results
         Map<String, Object> model = new HashMap<>();
@@ -90,11 +154,213 @@ public class Webapp {
         model.put("results", results);
         model.put("initialQuery", query);
 
-        return this.render("search.mustache", model);
+        return this.render(res, "search.mustache", model);
     }
 
-    private String render(String templateName, Map<String, Object> params) {
-        return new MustacheTemplateEngine(TEMPLATE_FILES).render(
-                new ModelAndView(params, templateName));
+    /**
+     * Handles queries from programs, answering with a page of results as JSON:
+     *
+     *   {"query": "...", "offset": 0, "num_results": 20,
+     *    "results": [{"uri": "...", "title": "...", "blurb": "...", "score": 0.5}, ...]}
+     *
+     * The 'offset' and 'num_results' parameters select which results are returned.
+     */
+    private String handleApiSearch(Request req, Response res) throws IOException {
+        String query = req.queryParamOrDefault("query", "");
+        int offset;
+        int numResults;
+        try {
+            offset = Integer.parseInt(req.queryParamOrDefault("offset", "0"));
+            numResults = Integer.parseInt(req.queryParamOrDefault("num_results", "20"));
+        } catch (NumberFormatException ex) {
+            return this.writeApiError(req, res, "offset and num_results must be integers");
+        }
+        if (offset < 0 || numResults < 0 || offset > MAX_API_RESULTS || numResults > MAX_API_RESULTS - offset) {
+            return this.writeApiError(req, res, String.format(
+                    "offset and num_results must not be negative, and add up to at most %d", MAX_API_RESULTS));
+        }
+
+        // Results are cached by how many are asked for, offset + num_results, so each
+        // page gets its own entry; a first page shares its entry with /search asking for
+        // the same number. Asking for no more than the page needs keeps the search
+        // cheap, since the fewer results are kept, the more pages WAND can skip.
+        IList<String> queryTerms = WordTokenizer.extract(query);
+        IList<Result> results = this.search(queryTerms, offset + numResults);
+
+        // Only count the first page, so paging through one query counts it once
+        if (offset == 0 && !results.isEmpty()) {
+            this.recordQuery(queryTerms);
+        }
+
+        res.type("application/json; charset=utf-8");
+        try (Writer writer = this.openBody(req, res)) {
+            JsonWriter json = new JsonWriter(writer);
+            json.beginObject()
+                    .name("query").value(query)
+                    .name("offset").value(offset)
+                    .name("num_results").value(numResults)
+                    .name("results").beginArray();
+            for (int i = offset; i < results.size(); i++) {
+                Result result = results.get(i);
+                json.beginObject()
+                        .name("uri").value(result.getUri().toString())
+                        .name("title").value(result.getTitle())
+                        .name("blurb").value(result.getBlurb())
+                        .name("score").value(result.getScore())
+                        .endObject();
+            }
+            json.endArray().endObject();
+        }
+        return "";
+    }
+
+    /**
+     * Handles requests for completions of what the user has typed so far, answering
+     * with the most popular words and past queries starting with it as JSON:
+     *
+     *   {"prefix": "...", "suggestions": [{"text": "...", "weight": 12}, ...]}
+     */
+    private String handleApiSuggest(Request req, Response res) throws IOException {
+        String prefix = req.queryParamOrDefault("prefix", "");
+        String normalized = normalizePrefix(prefix);
+
+        // Copy the completions out first, so a slow client never holds up the tries
+        IList<String> texts = new ArrayList<>();
+        IList<Long> weights = new ArrayList<>();
+        if (!normalized.isEmpty()) {
+            this.completeSuggestions(normalized, texts, weights);
+        }
+
+        res.type("application/json; charset=utf-8");
+        try (Writer writer = this.openBody(req, res)) {
+            JsonWriter json = new JsonWriter(writer);
+            json.beginObject()
+                    .name("prefix").value(prefix)
+                    .name("suggestions").beginArray();
+            for (int i = 0; i < texts.size(); i++) {
+                json.beginObject()
+                        .name("text").value(texts.get(i))
+                        .name("weight").value(weights.get(i))
+                        .endObject();
+            }
+            json.endArray().endObject();
+        }
+        return "";
+    }
+
+    private String writeApiError(Request req, Response res, String message) throws IOException {
+        res.status(400);
+        res.type("application/json; charset=utf-8");
+        try (Writer writer = this.openBody(req, res)) {
+            new JsonWriter(writer).beginObject().name("error").value(message).endObject();
+        }
+        return "";
+    }
+
+    /**
+     * Returns the top k results for the given query words, from the cache if possible.
+     */
+    private IList<Result> search(IList<String> queryTerms, int k) {
+        long generation = this.engine.getGeneration();
+        IList<Result> results = this.cache.get(queryTerms, k, generation);
+        if (results == null) {
+            results = this.engine.getTopKResults(queryTerms, k);
+            this.cache.put(queryTerms, k, generation, results);
+        }
+        return results;
+    }
+
+    /**
+     * Counts a search for the given query words towards suggesting them, unless too
+     * many different queries are already remembered.
+     */
+    private void recordQuery(IList<String> queryTerms) {
+        this.suggestedQueries.add(joinWords(queryTerms), 1, SUGGEST_MAX_QUERIES);
+    }
+
+    /**
+     * Adds the (at most SUGGEST_MAX_RESULTS) highest weighted words and past queries
+     * starting with the given prefix to the lists, best first.
+     *
+     * A query matching a word is suggested once, with the higher of its two weights.
+     * Taking the higher rather than the sum means anything in the overall top list is
+     * also in the top list of the trie it got its weight from, so merging the two top
+     * lists is exact.
+     */
+    private void completeSuggestions(String prefix, IList<String> texts, IList<Long> weights) {
+        Map<String, Long> merged = new HashMap<>();
+        this.suggestedWords.complete(prefix, (text, weight) -> merged.merge(text, weight, Math::max));
+        this.suggestedQueries.complete(prefix, (text, count) -> {
+            merged.merge(text, count * SUGGEST_QUERY_WEIGHT, Math::max);
+        });
+
+        String[] candidates = merged.keySet().toArray(new String[0]);
+        Arrays.sort(candidates, (a, b) -> {
+            int byWeight = Long.compare(merged.get(b), merged.get(a));
+            return byWeight != 0 ? byWeight : a.compareTo(b);
+        });
+        for (int i = 0; i < Math.min(SUGGEST_MAX_RESULTS, candidates.length); i++) {
+            texts.add(candidates[i]);
+            weights.add(merged.get(candidates[i]));
+        }
+    }
+
+    /**
+     * Splits the prefix into words the same way queries are, so it matches the words
+     * and queries being suggested. A trailing space is kept, so a finished word is
+     * only completed by longer queries.
+     */
+    private static String normalizePrefix(String prefix) {
+        String normalized = joinWords(WordTokenizer.extract(prefix));
+        if (!normalized.isEmpty() && Character.isWhitespace(prefix.charAt(prefix.length() - 1))) {
+            normalized += " ";
+        }
+        return normalized;
+    }
+
+    private static String joinWords(IList<String> words) {
+        StringBuilder out = new StringBuilder();
+        for (String word : words) {
+            if (out.length() > 0) {
+                out.append(' ');
+            }
+            out.append(word);
+        }
+        return out.toString();
+    }
+
+    /**
+     * Returns a writer sending UTF-8 text straight to the client, compressed with gzip
+     * if the client accepts it. Closing the writer finishes the response.
+     */
+    private Writer openBody(Request req, Response res) throws IOException {
+        OutputStream out = res.raw().getOutputStream();
+        String acceptEncoding = req.headers("Accept-Encoding");
+        res.header("Vary", "Accept-Encoding");
+        if (acceptEncoding != null && acceptEncoding.contains("gzip")) {
+            res.header("Content-Encoding", "gzip");
+            out = new GZIPOutputStream(out);
+        }
+        return new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Renders the given template straight into the response, without building the
+     * page up as a String first.
+     */
+    private String render(Response res, String templateName, Map<String, Object> params) throws IOException {
+        Mustache template = RELOAD_TEMPLATES
+                ? new DefaultMustacheFactory(TEMPLATE_FILES).compile(templateName)
+                : this.templates.get(templateName);
+
+        res.type("text/html; charset=utf-8");
+        Writer writer = new BufferedWriter(new OutputStreamWriter(
+                res.raw().getOutputStream(), StandardCharsets.UTF_8));
+        template.execute(writer, params);
+        writer.flush();
+
+        // The page has been sent, and Spark writes nothing more once a response is
+        // committed, so there is no body left to return
+        return "";
     }
 }
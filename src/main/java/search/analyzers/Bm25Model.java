@@ -0,0 +1,99 @@
+package search.analyzers;
+
+import datastructures.concrete.dictionaries.ObjectDoubleDictionary;
+import datastructures.interfaces.IList;
+
+/**
+ * Scores documents using Okapi BM25. Each query word adds
+ *
+ *   idf * (k1 + 1) * tf / (tf + k1 * (1 - b + b * length / average length))
+ *
+ * to a document's score, where tf is the number of times the word appears in the
+ * document and idf = ln(1 + (N - n + 0.5) / (n + 0.5)), for a corpus of N documents,
+ * n of which contain the word. Unlike raw TF-IDF, repeating a word has diminishing
+ * returns (controlled by k1), and long documents are penalized (controlled by b).
+ *
+ * The length part of the denominator only depends on the document, so it is computed
+ * once for every document up front; scoring a posting is then a single addition and
+ * division.
+ */
+public class Bm25Model implements RelevanceModel {
+    public static final double DEFAULT_K1 = 1.2;
+    public static final double DEFAULT_B = 0.75;
+
+    private ITermIndex index;
+    private double k1;
+    private double[] lengthNorms;
+
+    public Bm25Model(ITermIndex index) {
+        this(index, DEFAULT_K1, DEFAULT_B);
+    }
+
+    /**
+     * @throws IllegalArgumentException  if k1 < 0, or b is not between 0 and 1
+     */
+    public Bm25Model(ITermIndex index, double k1, double b) {
+        if (k1 < 0.0 || b < 0.0 || b > 1.0) {
+            throw new IllegalArgumentException("k1 must not be negative and b must be between 0 and 1");
+        }
+        this.index = index;
+        this.k1 = k1;
+
+        int documentCount = index.getDocumentCount();
+        long totalLength = 0;
+        for (int docId = 0; docId < documentCount; docId++) {
+            totalLength += index.getDocumentLength(docId);
+        }
+        double averageLength = documentCount == 0 ? 0.0 : (double) totalLength / documentCount;
+
+        this.lengthNorms = new double[documentCount];
+        for (int docId = 0; docId < documentCount; docId++) {
+            double relativeLength = averageLength == 0.0 ? 1.0 : index.getDocumentLength(docId) / averageLength;
+            this.lengthNorms[docId] = k1 * (1.0 - b + b * relativeLength);
+        }
+    }
+
+    @Override
+    public ITermIndex getIndex() {
+        return this.index;
+    }
+
+    /**
+     * Weighs each word by its idf times (k1 + 1), once for every time it appears in
+     * the query.
+     */
+    @Override
+    public ObjectDoubleDictionary<String> weighQuery(IList<String> query) {
+        ObjectDoubleDictionary<String> weights = new ObjectDoubleDictionary<>();
+        double documentCount = this.index.getDocumentCount();
+        for (String word : query) {
+            int documentFrequency = this.index.getDocumentFrequency(word);
+            double weight = 0.0;
+            if (documentFrequency > 0) {
+                double idf = Math.log(1.0 + (documentCount - documentFrequency + 0.5) / (documentFrequency + 0.5));
+                weight = idf * (this.k1 + 1.0);
+            }
+            weights.addDouble(word, weight);
+        }
+        return weights;
+    }
+
+    /**
+     * Returns 1: BM25 scores are not normalized by the query.
+     */
+    @Override
+    public double computeQueryNorm(ObjectDoubleDictionary<String> queryWeights) {
+        return 1.0;
+    }
+
+    @Override
+    public double scorePosting(Postings postings, int position) {
+        double frequency = postings.getFrequency(position);
+        return frequency / (frequency + this.lengthNorms[postings.getDocId(position)]);
+    }
+
+    @Override
+    public double scoreDocument(int docId, double sum, double queryNorm) {
+        return sum / queryNorm;
+    }
+}
@@ -0,0 +1,42 @@
+package search.analyzers;
+
+import datastructures.concrete.dictionaries.ObjectDoubleDictionary;
+import datastructures.interfaces.IList;
+
+/**
+ * Scores documents by the cosine similarity between the query's TF-IDF vector and
+ * theirs, as described in TfIdfAnalyzer.
+ */
+public class CosineModel implements RelevanceModel {
+    private ITermIndex index;
+
+    public CosineModel(ITermIndex index) {
+        this.index = index;
+    }
+
+    @Override
+    public ITermIndex getIndex() {
+        return this.index;
+    }
+
+    @Override
+    public ObjectDoubleDictionary<String> weighQuery(IList<String> query) {
+        return TfIdfAnalyzer.computeQueryTfIdfVector(this.index, query);
+    }
+
+    @Override
+    public double computeQueryNorm(ObjectDoubleDictionary<String> queryWeights) {
+        return TfIdfAnalyzer.norm(queryWeights);
+    }
+
+    @Override
+    public double scorePosting(Postings postings, int position) {
+        return postings.getWeight(position);
+    }
+
+    @Override
+    public double scoreDocument(int docId, double sum, double queryNorm) {
+        double denominator = this.index.getDocumentNorm(docId) * queryNorm;
+        return denominator != 0.0 ? sum / denominator : 0.0;
+    }
+}
@@ -0,0 +1,60 @@
+package search.analyzers;
+
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Represents everything we need to score a query against the documents in a corpus:
+ * the IDF score of each word, the postings list of each word, and the norm of each
+ * document's TF-IDF vector and its length in words.
+ *
+ * Documents are identified by the ids assigned by the DocumentRegistry.
+ */
+public interface ITermIndex {
+    /**
+     * Returns the number of documents in this index.
+     */
+    public int getDocumentCount();
+
+    /**
+     * Returns the number of unique words in this index. Each word has an id, from 0 up
+     * to (but not including) this number.
+     */
+    public int getTermCount();
+
+    /**
+     * Returns the id of the given word, or -1 if no document contains the word.
+     */
+    public int getTermId(String word);
+
+    /**
+     * Returns the IDF score of the given word, or 0.0 if no document contains the word.
+     */
+    public double getIdfScore(String word);
+
+    /**
+     * Returns the number of documents containing the given word.
+     */
+    public int getDocumentFrequency(String word);
+
+    /**
+     * Passes every word in this index to the consumer, along with the number of
+     * documents containing it.
+     */
+    public void forEachWord(ObjIntConsumer<String> consumer);
+
+    /**
+     * Returns the postings list for the given word, or an empty postings list if
+     * no document contains the word.
+     */
+    public Postings getPostings(String word);
+
+    /**
+     * Returns the norm of the TF-IDF vector of the document with the given id.
+     */
+    public double getDocumentNorm(int docId);
+
+    /**
+     * Returns the number of words in the document with the given id.
+     */
+    public int getDocumentLength(int docId);
+}
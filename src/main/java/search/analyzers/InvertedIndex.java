@@ -0,0 +1,145 @@
+package search.analyzers;
+
+import datastructures.concrete.dictionaries.IntDoubleDictionary;
+import datastructures.concrete.dictionaries.IntIntDictionary;
+import datastructures.concrete.dictionaries.ObjectDoubleDictionary;
+
+import java.util.Arrays;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Maps every word found in the corpus to the postings list of documents containing it.
+ *
+ * This is the "transpose" of the per-document TF-IDF vectors computed by the
+ * TfIdfAnalyzer: answering a query only requires reading the postings lists of the
+ * query's words, instead of visiting every document in the corpus.
+ *
+ * Documents are identified by their id in the DocumentRegistry, so postings lists
+ * can be stored as primitive arrays.
+ */
+public class InvertedIndex implements ITermIndex {
+    private static final int INITIAL_POSTINGS_CAPACITY = 4;
+
+    // Each word's id is the position of its postings list in 'postings'. Ids are whole
+    // numbers, so they are exact even though they are stored as doubles.
+    private String[] terms;
+    private ObjectDoubleDictionary<String> termIds;
+    private Postings[] postings;
+    private ObjectDoubleDictionary<String> idfScores;
+    private double[] norms;
+    private int[] lengths;
+
+    /**
+     * Builds an inverted index out of the given TF-IDF document vectors, word
+     * counts, norms and lengths, all indexed by document id.
+     *
+     * Vectors and word counts are keyed by term id, as assigned by the TfIdfAnalyzer:
+     * 'terms' holds the word with each term id, and 'termIds' the reverse. Word counts
+     * are the number of times each word appears in the document.
+     */
+    public InvertedIndex(String[] terms,
+                         ObjectDoubleDictionary<String> termIds,
+                         IntDoubleDictionary[] documentVectors,
+                         IntIntDictionary[] wordCounts,
+                         ObjectDoubleDictionary<String> idfScores,
+                         double[] norms,
+                         int[] lengths) {
+        this.terms = terms;
+        this.termIds = termIds;
+        this.idfScores = idfScores;
+        this.norms = norms;
+        this.lengths = lengths;
+
+        PostingsBuilder[] builders = new PostingsBuilder[terms.length];
+        for (int termId = 0; termId < terms.length; termId++) {
+            builders[termId] = new PostingsBuilder();
+        }
+        for (int docId = 0; docId < documentVectors.length; docId++) {
+            int id = docId;
+            IntIntDictionary counts = wordCounts[docId];
+            documentVectors[docId].forEachDouble((termId, weight) -> {
+                builders[termId].add(id, weight, counts.getInt(termId));
+            });
+        }
+
+        this.postings = new Postings[terms.length];
+        for (int termId = 0; termId < terms.length; termId++) {
+            this.postings[termId] = builders[termId].build();
+        }
+    }
+
+    @Override
+    public int getDocumentCount() {
+        return this.norms.length;
+    }
+
+    @Override
+    public int getTermCount() {
+        return this.postings.length;
+    }
+
+    @Override
+    public int getTermId(String word) {
+        return (int) this.termIds.getDoubleOrDefault(word, -1.0);
+    }
+
+    @Override
+    public double getIdfScore(String word) {
+        return this.idfScores.getDoubleOrDefault(word, 0.0);
+    }
+
+    @Override
+    public int getDocumentFrequency(String word) {
+        return this.getPostings(word).size();
+    }
+
+    @Override
+    public void forEachWord(ObjIntConsumer<String> consumer) {
+        for (int termId = 0; termId < this.terms.length; termId++) {
+            consumer.accept(this.terms[termId], this.postings[termId].size());
+        }
+    }
+
+    @Override
+    public Postings getPostings(String word) {
+        int termId = this.getTermId(word);
+        return termId == -1 ? Postings.EMPTY : this.postings[termId];
+    }
+
+    @Override
+    public double getDocumentNorm(int docId) {
+        return this.norms[docId];
+    }
+
+    @Override
+    public int getDocumentLength(int docId) {
+        return this.lengths[docId];
+    }
+
+    private static class PostingsBuilder {
+        private int[] docIds = new int[INITIAL_POSTINGS_CAPACITY];
+        private double[] weights = new double[INITIAL_POSTINGS_CAPACITY];
+        private int[] frequencies = new int[INITIAL_POSTINGS_CAPACITY];
+        private int size = 0;
+
+        public void add(int docId, double weight, int frequency) {
+            if (this.size == this.docIds.length) {
+                this.docIds = Arrays.copyOf(this.docIds, this.size * 2);
+                this.weights = Arrays.copyOf(this.weights, this.size * 2);
+                this.frequencies = Arrays.copyOf(this.frequencies, this.size * 2);
+            }
+            this.docIds[this.size] = docId;
+            this.weights[this.size] = weight;
+            this.frequencies[this.size] = frequency;
+            this.size++;
+        }
+
+        public Postings build() {
+            return new Postings(
+                    Arrays.copyOf(this.docIds, this.size),
+                    Arrays.copyOf(this.weights, this.size),
+                    Arrays.copyOf(this.frequencies, this.size),
+                    this.size);
+        }
+    }
+}
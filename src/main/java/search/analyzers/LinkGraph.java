@@ -0,0 +1,131 @@
+package search.analyzers;
+
+import datastructures.interfaces.ISet;
+import search.models.DocumentRegistry;
+import search.models.Webpage;
+
+import java.net.URI;
+import java.util.Arrays;
+
+/**
+ * An unweighted, directed graph of the links between webpages, stored in
+ * compressed-sparse-row form.
+ *
+ * Vertices are document ids. The outgoing edges of vertex 'v' are the entries
+ * getTarget(getOffset(v)) through getTarget(getOffset(v + 1) - 1), so the whole
+ * graph lives in two int arrays and can be walked without any hashing.
+ *
+ * Links to pages outside the registry, links from a page to itself, and duplicate
+ * links are all omitted: the graph is entirely "self-contained".
+ */
+public class LinkGraph {
+    private int[] offsets;
+    private int[] targets;
+
+    public LinkGraph(ISet<Webpage> webpages, DocumentRegistry registry) {
+        int vertexCount = registry.size();
+        int[] lastSource = new int[vertexCount];
+
+        // Pass 1: count the unique, in-corpus links leaving each page
+        int[] degrees = new int[vertexCount];
+        Arrays.fill(lastSource, -1);
+        for (Webpage page : webpages) {
+            int source = registry.getId(page.getUri());
+            for (URI link : page.getLinks()) {
+                int target = registry.indexOf(link);
+                if (target != -1 && target != source && lastSource[target] != source) {
+                    lastSource[target] = source;
+                    degrees[source]++;
+                }
+            }
+        }
+
+        this.offsets = new int[vertexCount + 1];
+        for (int v = 0; v < vertexCount; v++) {
+            this.offsets[v + 1] = this.offsets[v] + degrees[v];
+        }
+
+        // Pass 2: fill in each page's slice of the targets array
+        this.targets = new int[this.offsets[vertexCount]];
+        Arrays.fill(lastSource, -1);
+        for (Webpage page : webpages) {
+            int source = registry.getId(page.getUri());
+            int next = this.offsets[source];
+            for (URI link : page.getLinks()) {
+                int target = registry.indexOf(link);
+                if (target != -1 && target != source && lastSource[target] != source) {
+                    lastSource[target] = source;
+                    this.targets[next] = target;
+                    next++;
+                }
+            }
+        }
+    }
+
+    private LinkGraph(int[] offsets, int[] targets) {
+        this.offsets = offsets;
+        this.targets = targets;
+    }
+
+    /**
+     * Returns a new graph with every edge reversed, so the outgoing edges of each
+     * vertex in the new graph are the incoming edges of that vertex in this one.
+     */
+    public LinkGraph transpose() {
+        int vertexCount = this.size();
+        int[] newOffsets = new int[vertexCount + 1];
+        for (int target : this.targets) {
+            newOffsets[target + 1]++;
+        }
+        for (int v = 0; v < vertexCount; v++) {
+            newOffsets[v + 1] += newOffsets[v];
+        }
+
+        int[] newTargets = new int[this.targets.length];
+        int[] next = Arrays.copyOf(newOffsets, vertexCount);
+        for (int source = 0; source < vertexCount; source++) {
+            for (int edge = this.offsets[source]; edge < this.offsets[source + 1]; edge++) {
+                int target = this.targets[edge];
+                newTargets[next[target]] = source;
+                next[target]++;
+            }
+        }
+        return new LinkGraph(newOffsets, newTargets);
+    }
+
+    /**
+     * Returns the number of vertices (webpages) in this graph.
+     */
+    public int size() {
+        return this.offsets.length - 1;
+    }
+
+    /**
+     * Returns the total number of edges (links) in this graph.
+     */
+    public int getEdgeCount() {
+        return this.targets.length;
+    }
+
+    /**
+     * Returns the index of the first outgoing edge of the given vertex. Passing
+     * size() returns getEdgeCount().
+     */
+    public int getOffset(int vertex) {
+        return this.offsets[vertex];
+    }
+
+    /**
+     * Returns the number of outgoing edges of the given vertex.
+     */
+    public int getOutDegree(int vertex) {
+        return this.offsets[vertex + 1] - this.offsets[vertex];
+    }
+
+    /**
+     * Returns the vertex the given edge points to.
+     */
+    public int getTarget(int edge) {
+        return this.targets[edge];
+    }
+}
@@ -1,14 +1,13 @@
 package search.analyzers;
 
-import datastructures.concrete.ChainedHashSet;
-import datastructures.concrete.KVPair;
-import datastructures.concrete.dictionaries.ChainedHashDictionary;
-import datastructures.interfaces.IDictionary;
-import datastructures.interfaces.IList;
 import datastructures.interfaces.ISet;
+import search.models.DocumentRegistry;
 import search.models.Webpage;
 
 import java.net.URI;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 /**
  * Project 3
@@ -19,7 +18,14 @@ import java.net.URI;
  * See the spec for more details.
  */
 public class PageRankAnalyzer {
-    private IDictionary<URI, Double> pageRanks;
+    // When computing page rank in parallel, ranges of pages smaller than this
+    // are not worth splitting up any further.
+    private static final int MIN_PARALLEL_RANGE = 1024;
+    private static final int RANGES_PER_THREAD = 4;
+
+    // The page rank of every webpage, indexed by document id.
+    private double[] pageRanks;
+    private DocumentRegistry registry;
 
     /**
      * Computes a graph representing the internet and computes the page rank of all
@@ -34,53 +40,52 @@ public class PageRankAnalyzer {
      *                  page rank never converges.
      */
     public PageRankAnalyzer(ISet<Webpage> webpages, double decay, double epsilon, int limit) {
-        // Step 1: Make a graph representing the 'internet'
-        IDictionary<URI, ISet<URI>> graph = this.makeGraph(webpages);
-
-        // Step 2: Use this graph to compute the page rank for each webpage
-        this.pageRanks = this.makePageRanks(graph, decay, limit, epsilon);
+        this(webpages, new DocumentRegistry(webpages), decay, epsilon, limit);
     }
 
     /**
-     * This method converts a set of webpages into an unweighted, directed graph,
-     * in adjacency list form.
+     * Computes the page rank of all available webpages, storing them by the document
+     * ids assigned by the given registry.
      *
-     * You may assume that each webpage can be uniquely identified by its URI.
+     * @param registry  A registry containing every webpage in 'webpages'.
+     */
+    public PageRankAnalyzer(ISet<Webpage> webpages, DocumentRegistry registry,
+                            double decay, double epsilon, int limit) {
+        this(webpages, registry, decay, epsilon, limit, 1);
+    }
+
+    /**
+     * Computes the page rank of all available webpages using up to 'parallelism'
+     * threads. The results match the single-threaded computation to within epsilon.
      *
-     * Note that a webpage may contain links to other webpages that are *not*
-     * included within set of webpages you were given. You should omit these
-     * links from your graph: we want the final graph we build to be
-     * entirely "self-contained".
+     * @param registry     A registry containing every webpage in 'webpages'.
+     * @param parallelism  The number of threads to use; 1 computes page rank on the
+     *                     calling thread.
+     * @throws IllegalArgumentException  if parallelism < 1
      */
-    private IDictionary<URI, ISet<URI>> makeGraph(ISet<Webpage> webpages) {
-		ISet<URI> allowedSetOfWebpages = new ChainedHashSet<URI>();
-		IDictionary<URI, ISet<URI>> graph = new ChainedHashDictionary<URI, ISet<URI>>();
-		
-		for (Webpage page : webpages) {
-			URI pageUri = page.getUri();
-			allowedSetOfWebpages.add(pageUri);
-		}
-		
-		for (Webpage page : webpages) {
-			URI pageUri = page.getUri();
-			IList<URI> pageLinks = page.getLinks();
-			ISet<URI> allowedSetOfPageLinks = new ChainedHashSet<URI>();
-			
-			for (URI linkUri : pageLinks) {
-				if (allowedSetOfWebpages.contains(linkUri) && !linkUri.equals(pageUri)
-						&& !allowedSetOfPageLinks.contains(linkUri)) {
-					allowedSetOfPageLinks.add(linkUri);
-				}
-			}
-			graph.put(pageUri, allowedSetOfPageLinks);
-		}
-		return graph;
+    public PageRankAnalyzer(ISet<Webpage> webpages, DocumentRegistry registry,
+                            double decay, double epsilon, int limit, int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1");
+        }
+        this.registry = registry;
+
+        // Step 1: Make a graph representing the 'internet'
+        LinkGraph graph = new LinkGraph(webpages, registry);
+
+        // Step 2: Use this graph to compute the page rank for each webpage
+        if (parallelism == 1) {
+            this.pageRanks = this.makePageRanks(graph, decay, limit, epsilon);
+        } else {
+            this.pageRanks = this.makePageRanksInParallel(graph, decay, limit, epsilon, parallelism);
+        }
     }
 
     /**
-     * Computes the page ranks for all webpages in the graph.
+     * Computes the page ranks for all webpages in the graph, indexed by document id.
      *
-     * Precondition: assumes 'this.graphs' has previously been initialized.
+     * The ranks are held in two arrays that swap roles every iteration, so no
+     * memory is allocated once the iterations start.
      *
      * @param decay     Represents the "decay" factor when computing page rank (see spec).
      * @param epsilon   When the difference in page ranks is less then or equal to this number,
@@ -89,78 +94,236 @@ public class PageRankAnalyzer {
      *                  is meant as a safety valve to prevent us from infinite looping in case our
      *                  page rank never converges.
      */
-    private IDictionary<URI, Double> makePageRanks(IDictionary<URI, ISet<URI>> graph,
-                                                   double decay,
-                                                   int limit,
-                                                   double epsilon) {
-    		// Step 1: The initialize step should go here
-    		IDictionary<URI, Double> pageRanksDict = new ChainedHashDictionary<URI, Double>();
-    		double noOfWebpages = graph.size();
-    		double initialPageRank = 1.0 / noOfWebpages;
-    		for (KVPair<URI, ISet<URI>> pair : graph) {
-    			pageRanksDict.put(pair.getKey(), initialPageRank);
-		}
-    		
+    private double[] makePageRanks(LinkGraph graph, double decay, int limit, double epsilon) {
+        // Step 1: The initialize step should go here
+        int noOfWebpages = graph.size();
+        double[] oldPageRanks = new double[noOfWebpages];
+        double[] newPageRanks = new double[noOfWebpages];
+        Arrays.fill(oldPageRanks, 1.0 / noOfWebpages);
+
         for (int i = 0; i < limit; i++) {
-        		// Step 2: The update step should go here
-        		// First, give every web page a new page rank of 0.0.
-	        	IDictionary<URI, Double> newPageRanksDict = new ChainedHashDictionary<URI, Double>();
-	    		for (KVPair<URI, ISet<URI>> pair : graph) {
-	    			newPageRanksDict.put(pair.getKey(), 0.0);
-			}
-	        
-	        // Next, we will take the old page rank for every webpage and equally share it 
-	    		// with every web page it links to.
-	    		for (KVPair<URI, ISet<URI>> pair : graph) {
-	    			URI pageUri = pair.getKey();
-	    			ISet<URI> pageLinks = pair.getValue();
-	    			double noOfUniqueLinks = (double) pageLinks.size();
-	    			
-	    			for (URI linkUri : pageLinks) {
-	    				double newPageRank = newPageRanksDict.get(linkUri);
-	    				double oldPageRank = pageRanksDict.get(pageUri);
-	    				double value = newPageRank + decay * 
-		            			oldPageRank / noOfUniqueLinks;
-		            	newPageRanksDict.put(linkUri, value);
-	            }
-	    			
-	            if (noOfUniqueLinks == 0.0) {
-	            		for (KVPair<URI, Double> rankPair : newPageRanksDict) {
-	            			double newPageRank = rankPair.getValue();
-	            			double oldPageRank = pageRanksDict.get(pageUri);
-	            			double value = newPageRank + decay * 
-	            					oldPageRank / noOfWebpages;
-	            			newPageRanksDict.put(rankPair.getKey(), value);
-            			}
-            		}
-	            
-	            // Finally, add (1−d)/N every web page's new page rank.
-	            double newPageRank = newPageRanksDict.get(pageUri);
-	            double value = newPageRank + (1 - decay) / noOfWebpages;
-	            newPageRanksDict.put(pageUri, value);
-	        }
-	    		
-	        // Step 3: the convergence step should go here.
-	        // Return early if we've converged.
-	    		boolean converged = false;
-	    		for (KVPair<URI, Double> rankPair : newPageRanksDict) {
-	    			URI pageUri = rankPair.getKey();
-	    			double newPageRank = rankPair.getValue();
-	    			double oldPageRank = pageRanksDict.get(pageUri);
-	    			
-	    			if (Math.abs(newPageRank-oldPageRank) < epsilon) {
-	    				converged = true;
-	    			} else {
-	    				pageRanksDict = newPageRanksDict;
-	    				converged = false;
-	    				break;
-	    			}
-	    		}
-	    		if (converged) {
-	    			break;
-	    		}
+            // Step 2: The update step should go here
+            // Pages without links share their rank with every web page. Rather than
+            // visiting every page once per such page, we total up their rank and hand
+            // every page the same share of it, along with the usual (1-d)/N.
+            double danglingPageRank = 0.0;
+            for (int page = 0; page < noOfWebpages; page++) {
+                if (graph.getOutDegree(page) == 0) {
+                    danglingPageRank += oldPageRanks[page];
+                }
+            }
+            double baseline = (1 - decay) / noOfWebpages + decay * danglingPageRank / noOfWebpages;
+            Arrays.fill(newPageRanks, baseline);
+
+            // Next, we will take the old page rank for every webpage and equally share it
+            // with every web page it links to.
+            for (int page = 0; page < noOfWebpages; page++) {
+                int noOfUniqueLinks = graph.getOutDegree(page);
+                if (noOfUniqueLinks > 0) {
+                    double share = decay * oldPageRanks[page] / noOfUniqueLinks;
+                    int end = graph.getOffset(page + 1);
+                    for (int edge = graph.getOffset(page); edge < end; edge++) {
+                        newPageRanks[graph.getTarget(edge)] += share;
+                    }
+                }
+            }
+
+            // Step 3: the convergence step should go here.
+            // Return early if we've converged.
+            if (this.hasConverged(oldPageRanks, newPageRanks, epsilon)) {
+                break;
+            }
+            double[] temp = oldPageRanks;
+            oldPageRanks = newPageRanks;
+            newPageRanks = temp;
+        }
+        return oldPageRanks;
+    }
+
+    /**
+     * Computes the same page ranks as makePageRanks, splitting each iteration across
+     * a fork-join pool.
+     *
+     * Each iteration runs in two phases over ranges of pages. First, every page works
+     * out the share of its rank it passes along each of its links. Second, every page
+     * "pulls" the shares from the pages linking to it. Since each page only writes its
+     * own entries, the ranges never need to coordinate with each other.
+     */
+    private double[] makePageRanksInParallel(LinkGraph graph, double decay, int limit,
+                                             double epsilon, int parallelism) {
+        int noOfWebpages = graph.size();
+        LinkGraph incomingLinks = graph.transpose();
+        double[] oldPageRanks = new double[noOfWebpages];
+        double[] newPageRanks = new double[noOfWebpages];
+        double[] shares = new double[noOfWebpages];
+        Arrays.fill(oldPageRanks, 1.0 / noOfWebpages);
+
+        int grain = Math.max(MIN_PARALLEL_RANGE, noOfWebpages / (parallelism * RANGES_PER_THREAD));
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            for (int i = 0; i < limit; i++) {
+                double danglingPageRank = pool.invoke(
+                        new ShareTask(graph, decay, oldPageRanks, shares, 0, noOfWebpages, grain));
+                double baseline = (1 - decay) / noOfWebpages + decay * danglingPageRank / noOfWebpages;
+                double maxChange = pool.invoke(new PullTask(
+                        incomingLinks, baseline, shares, oldPageRanks, newPageRanks, 0, noOfWebpages, grain));
+
+                if (maxChange < epsilon) {
+                    break;
+                }
+                double[] temp = oldPageRanks;
+                oldPageRanks = newPageRanks;
+                newPageRanks = temp;
+            }
+        } finally {
+            pool.shutdown();
+        }
+        return oldPageRanks;
+    }
+
+    private boolean hasConverged(double[] oldPageRanks, double[] newPageRanks, double epsilon) {
+        for (int page = 0; page < oldPageRanks.length; page++) {
+            if (Math.abs(newPageRanks[page] - oldPageRanks[page]) >= epsilon) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Splits a range of pages in half until it is at most 'grain' pages long,
+     * then combines the results computed for each piece.
+     */
+    private abstract static class RangeTask extends RecursiveTask<Double> {
+        private static final long serialVersionUID = 1L;
+
+        protected final int start;
+        protected final int end;
+        protected final int grain;
+
+        protected RangeTask(int start, int end, int grain) {
+            this.start = start;
+            this.end = end;
+            this.grain = grain;
+        }
+
+        @Override
+        protected Double compute() {
+            if (this.end - this.start <= this.grain) {
+                return this.computeRange();
+            }
+            int middle = (this.start + this.end) >>> 1;
+            RangeTask left = this.split(this.start, middle);
+            RangeTask right = this.split(middle, this.end);
+            left.fork();
+            double rightResult = right.compute();
+            return this.combine(left.join(), rightResult);
+        }
+
+        protected abstract double computeRange();
+
+        protected abstract RangeTask split(int newStart, int newEnd);
+
+        protected abstract double combine(double a, double b);
+    }
+
+    /**
+     * Computes the rank each page passes along each of its links, and returns the
+     * total rank of the pages in the range that have no links.
+     */
+    private static class ShareTask extends RangeTask {
+        private static final long serialVersionUID = 1L;
+
+        private final LinkGraph graph;
+        private final double decay;
+        private final double[] pageRanks;
+        private final double[] shares;
+
+        public ShareTask(LinkGraph graph, double decay, double[] pageRanks, double[] shares,
+                         int start, int end, int grain) {
+            super(start, end, grain);
+            this.graph = graph;
+            this.decay = decay;
+            this.pageRanks = pageRanks;
+            this.shares = shares;
+        }
+
+        @Override
+        protected double computeRange() {
+            double danglingPageRank = 0.0;
+            for (int page = this.start; page < this.end; page++) {
+                int noOfUniqueLinks = this.graph.getOutDegree(page);
+                if (noOfUniqueLinks == 0) {
+                    danglingPageRank += this.pageRanks[page];
+                    this.shares[page] = 0.0;
+                } else {
+                    this.shares[page] = this.decay * this.pageRanks[page] / noOfUniqueLinks;
+                }
+            }
+            return danglingPageRank;
+        }
+
+        @Override
+        protected RangeTask split(int newStart, int newEnd) {
+            return new ShareTask(this.graph, this.decay, this.pageRanks, this.shares,
+                    newStart, newEnd, this.grain);
+        }
+
+        @Override
+        protected double combine(double a, double b) {
+            return a + b;
+        }
+    }
+
+    /**
+     * Computes the new rank of each page from the shares of the pages linking to it,
+     * and returns the largest change in rank within the range.
+     */
+    private static class PullTask extends RangeTask {
+        private static final long serialVersionUID = 1L;
+
+        private final LinkGraph incomingLinks;
+        private final double baseline;
+        private final double[] shares;
+        private final double[] oldPageRanks;
+        private final double[] newPageRanks;
+
+        public PullTask(LinkGraph incomingLinks, double baseline, double[] shares,
+                        double[] oldPageRanks, double[] newPageRanks,
+                        int start, int end, int grain) {
+            super(start, end, grain);
+            this.incomingLinks = incomingLinks;
+            this.baseline = baseline;
+            this.shares = shares;
+            this.oldPageRanks = oldPageRanks;
+            this.newPageRanks = newPageRanks;
+        }
+
+        @Override
+        protected double computeRange() {
+            double maxChange = 0.0;
+            for (int page = this.start; page < this.end; page++) {
+                double pageRank = this.baseline;
+                int edgeEnd = this.incomingLinks.getOffset(page + 1);
+                for (int edge = this.incomingLinks.getOffset(page); edge < edgeEnd; edge++) {
+                    pageRank += this.shares[this.incomingLinks.getTarget(edge)];
+                }
+                this.newPageRanks[page] = pageRank;
+                maxChange = Math.max(maxChange, Math.abs(pageRank - this.oldPageRanks[page]));
+            }
+            return maxChange;
+        }
+
+        @Override
+        protected RangeTask split(int newStart, int newEnd) {
+            return new PullTask(this.incomingLinks, this.baseline, this.shares,
+                    this.oldPageRanks, this.newPageRanks, newStart, newEnd, this.grain);
+        }
+
+        @Override
+        protected double combine(double a, double b) {
+            return Math.max(a, b);
         }
-        return pageRanksDict;
     }
 
     /**
@@ -170,6 +333,13 @@ public class PageRankAnalyzer {
      *               webpages given to the constructor.
      */
     public double computePageRank(URI pageUri) {
-    		return pageRanks.get(pageUri);
+    		return this.computePageRank(this.registry.getId(pageUri));
+    }
+
+    /**
+     * Returns the page rank of the document with the given id.
+     */
+    public double computePageRank(int docId) {
+        return this.pageRanks[docId];
     }
 }
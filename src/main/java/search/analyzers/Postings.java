@@ -0,0 +1,120 @@
+package search.analyzers;
+
+/**
+ * Represents the postings list for a single word: every document containing
+ * that word, along with the word's TF-IDF weight within that document and the
+ * number of times the word appears in it.
+ *
+ * The document ids are stored in increasing order, so several postings lists
+ * can be walked side by side and merged in a single pass.
+ *
+ * Postings lists read out of an index segment decode their entries a block at a time
+ * into a buffer of their own, so they must not be read by several threads at once.
+ * Code that may share a postings list between threads reads it through a duplicate.
+ */
+public class Postings {
+    public static final Postings EMPTY = new Postings(new int[0], new double[0], new int[0], 0);
+
+    private int[] docIds;
+    private double[] weights;
+    private int[] frequencies;
+    private int size;
+
+    /**
+     * Constructs a new postings list. The first 'size' entries of every array
+     * are used; 'docIds' must be sorted in increasing order.
+     */
+    public Postings(int[] docIds, double[] weights, int[] frequencies, int size) {
+        this.docIds = docIds;
+        this.weights = weights;
+        this.frequencies = frequencies;
+        this.size = size;
+    }
+
+    /**
+     * Constructs a postings list of the given size for a subclass that stores its
+     * entries itself, and so overrides every method reading them.
+     */
+    protected Postings(int size) {
+        this(null, null, null, size);
+    }
+
+    /**
+     * Returns a postings list holding the same entries as this one, which can be read
+     * independently of it by another thread. Postings lists held entirely in arrays
+     * never change, so they return themselves.
+     */
+    public Postings duplicate() {
+        return this;
+    }
+
+    /**
+     * Returns the number of documents containing this word.
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Returns the id of the document stored at the given position.
+     *
+     * @throws IndexOutOfBoundsException if the index < 0 or index >= this.size()
+     */
+    public int getDocId(int index) {
+        this.checkIndex(index);
+        return this.docIds[index];
+    }
+
+    /**
+     * Returns the TF-IDF weight of the word in the document stored at the given position.
+     *
+     * @throws IndexOutOfBoundsException if the index < 0 or index >= this.size()
+     */
+    public double getWeight(int index) {
+        this.checkIndex(index);
+        return this.weights[index];
+    }
+
+    /**
+     * Returns the number of times the word appears in the document stored at the
+     * given position.
+     *
+     * @throws IndexOutOfBoundsException if the index < 0 or index >= this.size()
+     */
+    public int getFrequency(int index) {
+        this.checkIndex(index);
+        return this.frequencies[index];
+    }
+
+    /**
+     * Returns the first position at or after 'from' whose document id is at least
+     * 'target', or this.size() if there is none.
+     *
+     * Gallops forward from 'from' before binary searching, so skipping a short
+     * distance only looks at a few entries.
+     */
+    public int advance(int from, int target) {
+        int low = from;
+        int step = 1;
+        while (low + step < this.size && this.docIds[low + step] < target) {
+            low += step;
+            step *= 2;
+        }
+        int high = Math.min(low + step, this.size);
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (this.docIds[middle] < target) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= this.size) {
+            throw new IndexOutOfBoundsException();
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package search.analyzers;
+
+/**
+ * A query that has been looked up in an index and weighed by a RelevanceModel, so it
+ * can be scored against any number of documents without repeating that work.
+ *
+ * Each unique word of the query is a term, holding the word, its postings list and its
+ * query weight, in the order the terms' scores are added up in. Words found in no
+ * document are kept, with an empty postings list.
+ *
+ * Prepared queries cannot be modified, so one can be cached and shared between
+ * threads and requests for as long as the index it was prepared against is in use.
+ * Their postings lists are shared along with them, so they are only ever read through
+ * duplicates (see Postings.duplicate).
+ */
+public class PreparedQuery {
+    private String[] words;
+    private int[] termIds;
+    private Postings[] postings;
+    private double[] weights;
+    private double norm;
+    private long postingsCount;
+
+    /**
+     * Constructs a prepared query out of the given parallel arrays, which must not be
+     * modified afterwards.
+     */
+    PreparedQuery(String[] words, int[] termIds, Postings[] postings, double[] weights, double norm) {
+        this.words = words;
+        this.termIds = termIds;
+        this.postings = postings;
+        this.weights = weights;
+        this.norm = norm;
+        this.postingsCount = 0;
+        for (Postings list : postings) {
+            this.postingsCount += list.size();
+        }
+    }
+
+    /**
+     * Returns the number of unique words in the query.
+     */
+    public int size() {
+        return this.words.length;
+    }
+
+    public String getWord(int term) {
+        return this.words[term];
+    }
+
+    /**
+     * Returns the id of the term's word in the index, or -1 if no document contains it.
+     */
+    public int getTermId(int term) {
+        return this.termIds[term];
+    }
+
+    public Postings getPostings(int term) {
+        return this.postings[term];
+    }
+
+    public double getWeight(int term) {
+        return this.weights[term];
+    }
+
+    /**
+     * Returns the norm that relevances are divided by (see RelevanceModel).
+     */
+    public double getNorm() {
+        return this.norm;
+    }
+
+    /**
+     * Returns the total length of the terms' postings lists.
+     */
+    public long getPostingsCount() {
+        return this.postingsCount;
+    }
+}
@@ -0,0 +1,137 @@
+package search.analyzers;
+
+import datastructures.concrete.KVPair;
+import datastructures.concrete.dictionaries.ObjectDoubleDictionary;
+import datastructures.interfaces.IList;
+
+/**
+ * A way of scoring how relevant each document in an index is to a query.
+ *
+ * Every model scores a document by adding up, over the query's words it contains,
+ * the word's query weight times a score for its posting, then turning that sum into
+ * the document's relevance. The relevance must be proportional to the sum and
+ * inversely proportional to the query norm, so searches can bound the score a
+ * single word can contribute (see WandSearcher).
+ */
+public interface RelevanceModel {
+    public enum Kind { COSINE, BM25 }
+
+    /**
+     * Returns the index this model scores documents from.
+     */
+    public ITermIndex getIndex();
+
+    /**
+     * Returns the weight of each unique word in the query. Words in no document have
+     * a weight of 0. The scores of a document's words are added up in the order the
+     * words are stored in.
+     */
+    public ObjectDoubleDictionary<String> weighQuery(IList<String> query);
+
+    /**
+     * Returns the norm that relevances are divided by for the given query weights.
+     */
+    public double computeQueryNorm(ObjectDoubleDictionary<String> queryWeights);
+
+    /**
+     * Returns how much the posting at the given position adds to its document's
+     * score, per unit of query weight.
+     */
+    public double scorePosting(Postings postings, int position);
+
+    /**
+     * Returns the relevance of the document with the given id, given the sum of its
+     * words' query weights times their posting scores.
+     */
+    public double scoreDocument(int docId, double sum, double queryNorm);
+
+    /**
+     * Weighs the given query and looks up its words' postings lists, so it can be
+     * scored against many documents.
+     */
+    public default PreparedQuery prepare(IList<String> query) {
+        ObjectDoubleDictionary<String> queryWeights = this.weighQuery(query);
+        int termCount = queryWeights.size();
+        String[] words = new String[termCount];
+        int[] termIds = new int[termCount];
+        Postings[] postings = new Postings[termCount];
+        double[] weights = new double[termCount];
+        int term = 0;
+        for (KVPair<String, Double> pair : queryWeights) {
+            words[term] = pair.getKey();
+            termIds[term] = this.getIndex().getTermId(pair.getKey());
+            postings[term] = this.getIndex().getPostings(pair.getKey());
+            weights[term] = pair.getValue();
+            term++;
+        }
+        return new PreparedQuery(words, termIds, postings, weights, this.computeQueryNorm(queryWeights));
+    }
+
+    /**
+     * Returns the relevance of the document with the given id to the query.
+     *
+     * Precondition: the query must have been prepared by this model.
+     */
+    public default double computeRelevance(PreparedQuery query, int docId) {
+        double sum = 0.0;
+        for (int i = 0; i < query.size(); i++) {
+            Postings postings = query.getPostings(i).duplicate();
+            int position = postings.advance(0, docId);
+            if (position < postings.size() && postings.getDocId(position) == docId) {
+                sum += this.scorePosting(postings, position) * query.getWeight(i);
+            }
+        }
+        return this.scoreDocument(docId, sum, query.getNorm());
+    }
+
+    /**
+     * Passes the relevance of every document containing at least one of the query's
+     * words to the consumer, in increasing order of document id.
+     */
+    public default void computeRelevances(IList<String> query, ScoreConsumer consumer) {
+        this.computeRelevances(this.prepare(query), consumer);
+    }
+
+    /**
+     * Passes the relevance of every document containing at least one of the query's
+     * words to the consumer, in increasing order of document id.
+     *
+     * The postings lists of the query's words are merged in order of document id, so
+     * each matching document is visited exactly once. Documents sharing no words with
+     * the query are skipped: their relevance is always zero.
+     *
+     * Precondition: the query must have been prepared by this model.
+     */
+    public default void computeRelevances(PreparedQuery query, ScoreConsumer consumer) {
+        int termCount = query.size();
+        int[] cursors = new int[termCount];
+        Postings[] lists = new Postings[termCount];
+        for (int i = 0; i < termCount; i++) {
+            lists[i] = query.getPostings(i).duplicate();
+        }
+
+        while (true) {
+            // Find the smallest document id not yet visited by any postings list
+            int docId = Integer.MAX_VALUE;
+            for (int i = 0; i < termCount; i++) {
+                Postings postings = lists[i];
+                if (cursors[i] < postings.size()) {
+                    docId = Math.min(docId, postings.getDocId(cursors[i]));
+                }
+            }
+            if (docId == Integer.MAX_VALUE) {
+                break;
+            }
+
+            double sum = 0.0;
+            for (int i = 0; i < termCount; i++) {
+                Postings postings = lists[i];
+                if (cursors[i] < postings.size() && postings.getDocId(cursors[i]) == docId) {
+                    sum += this.scorePosting(postings, cursors[i]) * query.getWeight(i);
+                    cursors[i]++;
+                }
+            }
+            consumer.accept(docId, this.scoreDocument(docId, sum, query.getNorm()));
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package search.analyzers;
+
+/**
+ * Receives a stream of (document id, score) pairs without boxing either value.
+ */
+@FunctionalInterface
+public interface ScoreConsumer {
+    void accept(int docId, double score);
+}
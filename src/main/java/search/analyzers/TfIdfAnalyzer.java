@@ -1,13 +1,17 @@
 package search.analyzers;
 
+import datastructures.concrete.ArrayList;
 import datastructures.concrete.ChainedHashSet;
-import datastructures.concrete.DoubleLinkedList;
 import datastructures.concrete.KVPair;
 import datastructures.concrete.dictionaries.ChainedHashDictionary;
+import datastructures.concrete.dictionaries.IntDoubleDictionary;
+import datastructures.concrete.dictionaries.IntIntDictionary;
+import datastructures.concrete.dictionaries.ObjectDoubleDictionary;
 import datastructures.interfaces.IDictionary;
 import datastructures.interfaces.IList;
 import datastructures.interfaces.ISet;
 
+import search.models.DocumentRegistry;
 import search.models.Webpage;
 
 import java.net.URI;
@@ -24,35 +28,77 @@ import java.net.URI;
 public class TfIdfAnalyzer {
     // This field must contain the IDF score for every single word in all
     // the documents.
-    private IDictionary<String, Double> idfScores;
+    private ObjectDoubleDictionary<String> idfScores;
+
+    // Every word's term id, and the word with each term id. Ids are whole numbers, so
+    // they are exact even though they are stored as doubles.
+    private ObjectDoubleDictionary<String> termIds;
+    private String[] terms;
 
     // This field must contain the TF-IDF vector for each webpage you were given
-    // in the constructor.
+    // in the constructor, keyed by term id.
     //
-    // We will use each webpage's page URI as a unique key.
-    private IDictionary<URI, IDictionary<String, Double>> documentTfIdfVectors;
+    // We use each webpage's document id (see DocumentRegistry) as the index.
+    private IntDoubleDictionary[] documentTfIdfVectors;
 
     /** Extra Fields and Constants*/
-    // This field must contain the normalized TF-IDF vector for each webpage 
-    // you were given in the constructor.
-    private IDictionary<URI, Double> normDocumentTfIdfVectors;
+    // This field must contain the norm of the TF-IDF vector for each webpage
+    // you were given in the constructor, indexed by document id.
+    private double[] normDocumentTfIdfVectors;
+
+    // This field maps every word to the documents containing it, so queries
+    // only need to look at documents sharing at least one word with the query.
+    private InvertedIndex invertedIndex;
+
+    private DocumentRegistry registry;
 
     public TfIdfAnalyzer(ISet<Webpage> webpages) {
+        this(webpages, new DocumentRegistry(webpages));
+    }
+
+    public TfIdfAnalyzer(ISet<Webpage> webpages, DocumentRegistry registry) {
+        this.registry = registry;
         this.idfScores = this.computeIdfScores(webpages);
-        this.documentTfIdfVectors = this.computeAllDocumentTfIdfVectors(webpages);
-        this.normDocumentTfIdfVectors = new ChainedHashDictionary<URI, Double>();
-        for (KVPair<URI, IDictionary<String, Double>> pair : documentTfIdfVectors) {
-        		URI webpage = pair.getKey();
-        		double value = norm(pair.getValue());
-        		normDocumentTfIdfVectors.put(webpage, value);
+        this.assignTermIds();
+
+        // The word counts and lengths are only kept long enough to build the index
+        IntIntDictionary[] wordCounts = new IntIntDictionary[registry.size()];
+        int[] lengths = new int[registry.size()];
+        this.documentTfIdfVectors = this.computeAllDocumentTfIdfVectors(webpages, wordCounts, lengths);
+        this.normDocumentTfIdfVectors = new double[registry.size()];
+        for (int docId = 0; docId < registry.size(); docId++) {
+            this.normDocumentTfIdfVectors[docId] = norm(this.documentTfIdfVectors[docId]);
         }
+        this.invertedIndex = new InvertedIndex(this.terms, this.termIds, this.documentTfIdfVectors,
+                wordCounts, this.idfScores, this.normDocumentTfIdfVectors, lengths);
     }
 
     // Note: this method, strictly speaking, doesn't need to exist. However,
     // we've included it so we can add some unit tests to help verify that your
     // constructor correctly initializes your fields.
     public IDictionary<URI, IDictionary<String, Double>> getDocumentTfIdfVectors() {
-        return this.documentTfIdfVectors;
+        IDictionary<URI, IDictionary<String, Double>> output =
+                new ChainedHashDictionary<URI, IDictionary<String, Double>>();
+        for (int docId = 0; docId < this.registry.size(); docId++) {
+            IDictionary<String, Double> vector = new ChainedHashDictionary<String, Double>();
+            this.documentTfIdfVectors[docId].forEachDouble((termId, weight) -> {
+                vector.put(this.terms[termId], weight);
+            });
+            output.put(this.registry.getUri(docId), vector);
+        }
+        return output;
+    }
+
+    public InvertedIndex getInvertedIndex() {
+        return this.invertedIndex;
+    }
+
+    public IDictionary<String, Double> getIdfScores() {
+        return this.idfScores;
+    }
+
+    public double getDocumentNorm(int docId) {
+        return this.normDocumentTfIdfVectors[docId];
     }
 
     // Note: these private methods are suggestions or hints on how to structure your
@@ -65,74 +111,89 @@ public class TfIdfAnalyzer {
      * This method should return a dictionary mapping every single unique word found
      * in any documents to their IDF score.
      */
-    private IDictionary<String, Double> computeIdfScores(ISet<Webpage> pages) {
-    		IDictionary<String, Double> wordCount = new ChainedHashDictionary<String, Double>();
-    		IDictionary<String, Double> idfDict = new ChainedHashDictionary<String, Double>();
+    private ObjectDoubleDictionary<String> computeIdfScores(ISet<Webpage> pages) {
+    		ObjectDoubleDictionary<String> wordCount = new ObjectDoubleDictionary<String>();
     		
     		for (Webpage webpage : pages) {
     			IList<String> words = webpage.getWords();
     			IList<String> uniqueWords = computeUniqueWords(words);
     			
     			for (String word : uniqueWords) {
-    				if (wordCount.containsKey(word)) {
-    					double value = wordCount.get(word) + 1.0;
-    					wordCount.put(word, value);
-    				} else {
-    					wordCount.put(word, 1.0);
-    				}
+    				wordCount.addDouble(word, 1.0);
     			}
     		}
     		
+    		ObjectDoubleDictionary<String> idfDict = new ObjectDoubleDictionary<String>(wordCount.size());
     		int length = pages.size();
-    		for (KVPair<String, Double> pair : wordCount) {
-    			String word = pair.getKey();
-    			double value = Math.log(length / pair.getValue());
-    			idfDict.put(word, value);
-    		}
+    		wordCount.forEachDouble((word, count) -> idfDict.putDouble(word, Math.log(length / count)));
     		return idfDict;
     }
 
+    /**
+     * Numbers the words in the IDF dictionary from 0, so documents can be described by
+     * term id rather than by word.
+     */
+    private void assignTermIds() {
+        this.termIds = new ObjectDoubleDictionary<String>(this.idfScores.size());
+        this.terms = new String[this.idfScores.size()];
+        this.idfScores.forEachDouble((word, idf) -> {
+            int termId = this.termIds.size();
+            this.termIds.putDouble(word, termId);
+            this.terms[termId] = word;
+        });
+    }
+
     /**
      * Returns a dictionary mapping every unique word found in the given list
      * to their term frequency (TF) score.
      *
      * We are treating the list of words as if it were a document.
      */
-    private IDictionary<String, Double> computeTfScores(IList<String> words) {
-		IDictionary<String, Double> tfDict = new ChainedHashDictionary<String, Double>();
+    private static ObjectDoubleDictionary<String> computeTfScores(IList<String> words) {
+		ObjectDoubleDictionary<String> tfDict = new ObjectDoubleDictionary<String>();
 		
 		double length = words.size();
 		for (String word : words) {
-			if (tfDict.containsKey(word)) {
-				double value = tfDict.get(word) + (1.0 / length);
-				tfDict.put(word, value);
-			} else {
-				double value = (1.0 / length);
-				tfDict.put(word, value);
-			}
+			tfDict.addDouble(word, 1.0 / length);
 		}
 		return tfDict;
     }
 
+    /**
+     * Returns a dictionary mapping the term id of every unique word found in the given
+     * list to the number of times it appears.
+     */
+    private IntIntDictionary computeWordCounts(IList<String> words) {
+        IntIntDictionary countDict = new IntIntDictionary();
+        for (String word : words) {
+            countDict.addInt((int) this.termIds.getDouble(word), 1);
+        }
+        return countDict;
+    }
+
     /**
      * See spec for more details on what this method should do.
+     *
+     * Also stores how many times each word appears in each document, and each
+     * document's number of words, in the given arrays, indexed by document id.
      */
-    private IDictionary<URI, IDictionary<String, Double>> computeAllDocumentTfIdfVectors(ISet<Webpage> pages) {
-	    	IDictionary<URI, IDictionary<String, Double>> allRelevanceDict = 
-					new ChainedHashDictionary<URI, IDictionary<String, Double>>();
-			
+    private IntDoubleDictionary[] computeAllDocumentTfIdfVectors(
+            ISet<Webpage> pages, IntIntDictionary[] wordCounts, int[] lengths) {
+        IntDoubleDictionary[] allRelevanceDict = new IntDoubleDictionary[this.registry.size()];
+
 		for (Webpage webpage : pages) {
 			IList<String> words = webpage.getWords();
-			IDictionary<String, Double> relevanceDict = new ChainedHashDictionary<String, Double>();
-			IDictionary<String, Double> tfDict = computeTfScores(words);
+			IntIntDictionary countDict = this.computeWordCounts(words);
+			IntDoubleDictionary relevanceDict = new IntDoubleDictionary(countDict.size());
 			
-			for (KVPair<String, Double> pair : tfDict) {
-				String word = pair.getKey();
-				double value = pair.getValue() * idfScores.get(word);
-				relevanceDict.put(word, value);
-	        }
-			URI uri = webpage.getUri();
-	        allRelevanceDict.put(uri, relevanceDict);
+			double length = words.size();
+			countDict.forEachInt((termId, count) -> {
+				relevanceDict.putDouble(termId, count / length * this.idfScores.getDouble(this.terms[termId]));
+			});
+			int docId = this.registry.getId(webpage.getUri());
+	        allRelevanceDict[docId] = relevanceDict;
+	        wordCounts[docId] = countDict;
+	        lengths[docId] = words.size();
 		}
 			
 	    return allRelevanceDict;
@@ -146,56 +207,106 @@ public class TfIdfAnalyzer {
      *               webpages given to the constructor.
      */
     public Double computeRelevance(IList<String> query, URI pageUri) {
-    		IDictionary<String, Double> documentVector = documentTfIdfVectors.get(pageUri);
-		IDictionary<String, Double> queryVector = computeQueryTfIdfVector(query);
-		
-		double numerator = 0.0;
-		for (KVPair<String, Double> pair : queryVector) {
-			String word = pair.getKey();
-			double docWordScore;
-			if (documentVector.containsKey(word)) {
-				docWordScore = documentVector.get(word);
-			} else {
-				docWordScore = 0.0;
-			}
-			double queryWordScore = queryVector.get(word);
-			numerator += docWordScore * queryWordScore;
-		}
-		
-		double denominator = normDocumentTfIdfVectors.get(pageUri) * norm(queryVector);
-		
-		if (denominator != 0.0) {
-			return numerator / denominator;
-		} else {
-			return 0.0;
-		}
-	}
+        return this.computeRelevance(query, this.registry.getId(pageUri));
+    }
+
+    /**
+     * Returns the cosine similarity between the TF-IDF vector for the given query and the
+     * document with the given id.
+     */
+    public double computeRelevance(IList<String> query, int docId) {
+        return this.computeRelevance(this.prepare(query), docId);
+    }
+
+    /**
+     * Computes the TF-IDF vector and norm of the given query once, so it can be scored
+     * against any number of documents with computeRelevance.
+     */
+    public PreparedQuery prepare(IList<String> query) {
+        return new CosineModel(this.invertedIndex).prepare(query);
+    }
+
+    /**
+     * Returns the cosine similarity between the TF-IDF vector of the given prepared
+     * query and the document with the given id.
+     *
+     * Precondition: the query must have been prepared by this analyzer.
+     */
+    public double computeRelevance(PreparedQuery query, int docId) {
+        IntDoubleDictionary documentVector = this.documentTfIdfVectors[docId];
+
+        // Words in no document have no term id, and appear in no vector
+        double numerator = 0.0;
+        for (int i = 0; i < query.size(); i++) {
+            numerator += documentVector.getDoubleOrDefault(query.getTermId(i), 0.0) * query.getWeight(i);
+        }
+
+        double denominator = this.normDocumentTfIdfVectors[docId] * query.getNorm();
+        if (denominator != 0.0) {
+            return numerator / denominator;
+        } else {
+            return 0.0;
+        }
+    }
+
+    /**
+     * Passes the cosine similarity between the TF-IDF vector for the given query and
+     * every document containing at least one of the query's words to the consumer,
+     * in increasing order of document id.
+     *
+     * Documents sharing no words with the query are skipped: their relevance is
+     * always zero.
+     */
+    public void computeRelevances(IList<String> query, ScoreConsumer consumer) {
+        computeRelevances(this.invertedIndex, query, consumer);
+    }
+
+    /**
+     * Passes the cosine similarity between the TF-IDF vector for the given query and
+     * every document in the given index containing at least one of the query's words
+     * to the consumer, in increasing order of document id (see CosineModel).
+     */
+    public static void computeRelevances(ITermIndex index, IList<String> query, ScoreConsumer consumer) {
+        new CosineModel(index).computeRelevances(query, consumer);
+    }
+
+    /**
+     * Returns the cosine similarity between the TF-IDF vector for the given query and
+     * every document containing at least one of the query's words, keyed by URI.
+     */
+    public IDictionary<URI, Double> computeRelevances(IList<String> query) {
+        IDictionary<URI, Double> output = new ChainedHashDictionary<URI, Double>();
+        this.computeRelevances(query, (docId, relevance) -> {
+            output.put(this.registry.getUri(docId), relevance);
+        });
+        return output;
+    }
 	
 	/** Helper Methods */
-	private double norm(IDictionary<String, Double> vector) {
-		double output = 0.0;
-	    for (KVPair<String, Double> pair : vector) {
-	        double score = pair.getValue();
-	        output += score * score;
-	    }
-	    return Math.sqrt(output);
+	static double norm(ObjectDoubleDictionary<String> vector) {
+		double[] output = new double[1];
+	    vector.forEachDouble((word, score) -> output[0] += score * score);
+	    return Math.sqrt(output[0]);
+	}
+
+	static double norm(IntDoubleDictionary vector) {
+		double[] output = new double[1];
+	    vector.forEachDouble((termId, score) -> output[0] += score * score);
+	    return Math.sqrt(output[0]);
 	}
 	
-	private IDictionary<String, Double> computeQueryTfIdfVector(IList<String> query) {
-		IDictionary<String, Double> relevanceDict = new ChainedHashDictionary<String, Double>();
+	static ObjectDoubleDictionary<String> computeQueryTfIdfVector(ITermIndex index, IList<String> query) {
 		IList<String> uniqueQueryWords = computeUniqueWords(query);
-		IDictionary<String, Double> tfDict = computeTfScores(uniqueQueryWords);
+		ObjectDoubleDictionary<String> tfDict = computeTfScores(uniqueQueryWords);
+		ObjectDoubleDictionary<String> relevanceDict = new ObjectDoubleDictionary<String>(tfDict.size());
 		
-		for (KVPair<String, Double> pair : tfDict) {
-			String word = pair.getKey();
-			double value = pair.getValue() * idfScores.get(word);
-			relevanceDict.put(word, value);
-        }
+		// Words that appear in no document carry no weight
+		tfDict.forEachDouble((word, tf) -> relevanceDict.putDouble(word, tf * index.getIdfScore(word)));
 		return relevanceDict;
 	}
 
-	private IList<String> computeUniqueWords(IList<String> list) {
-		IList<String> wordsList = new DoubleLinkedList<String>();
+	private static IList<String> computeUniqueWords(IList<String> list) {
+		IList<String> wordsList = new ArrayList<String>();
 		ISet<String> uniqueWords = new ChainedHashSet<String>();
 		for (String word : list) {
 			uniqueWords.add(word);
@@ -0,0 +1,136 @@
+package search.analyzers;
+
+/**
+ * Keeps the k best (document id, score) pairs out of a stream of any length, using
+ * memory proportional to k rather than to the number of pairs seen.
+ *
+ * The pairs are kept in a min-heap over two parallel primitive arrays, with the worst
+ * of them at the root, so offering a pair that does not make the cut costs a single
+ * comparison and allocates nothing.
+ *
+ * A pair ranks above another if it has a higher score, or the same score and a lower
+ * document id, so the k kept never depend on the order the pairs arrive in.
+ */
+public class TopKCollector implements ScoreConsumer {
+    private int[] docIds;
+    private double[] scores;
+    private int size;
+
+    /**
+     * @throws IllegalArgumentException  if k < 0
+     */
+    public TopKCollector(int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("k must not be negative");
+        }
+        this.docIds = new int[k];
+        this.scores = new double[k];
+        this.size = 0;
+    }
+
+    /**
+     * Returns the number of pairs currently kept.
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Returns 'true' if k pairs are kept, so a new pair must beat the worst of them
+     * to be kept.
+     */
+    public boolean isFull() {
+        return this.size == this.docIds.length;
+    }
+
+    /**
+     * Returns the score of the worst pair kept.
+     *
+     * @throws IllegalStateException  if no pair is kept
+     */
+    public double getThreshold() {
+        if (this.size == 0) {
+            throw new IllegalStateException("No scores collected");
+        }
+        return this.scores[0];
+    }
+
+    /**
+     * Offers the given pair, keeping it if it ranks among the k best seen so far.
+     */
+    @Override
+    public void accept(int docId, double score) {
+        if (!this.isFull()) {
+            this.docIds[this.size] = docId;
+            this.scores[this.size] = score;
+            this.size++;
+            this.siftUp(this.size - 1);
+        } else if (this.size > 0 && isWorse(this.docIds[0], this.scores[0], docId, score)) {
+            this.docIds[0] = docId;
+            this.scores[0] = score;
+            this.siftDown(0, this.size);
+        }
+    }
+
+    /**
+     * Passes every pair kept to the consumer, best first, and empties this collector.
+     */
+    public void drain(ScoreConsumer consumer) {
+        // Heapsort in place: moving the worst remaining pair to the end of the heap
+        // each time leaves the arrays ordered from best to worst
+        for (int end = this.size - 1; end > 0; end--) {
+            this.swap(0, end);
+            this.siftDown(0, end);
+        }
+        for (int i = 0; i < this.size; i++) {
+            consumer.accept(this.docIds[i], this.scores[i]);
+        }
+        this.size = 0;
+    }
+
+    private void siftUp(int index) {
+        while (index > 0) {
+            int parent = (index - 1) / 2;
+            if (!isWorse(this.docIds[index], this.scores[index], this.docIds[parent], this.scores[parent])) {
+                break;
+            }
+            this.swap(index, parent);
+            index = parent;
+        }
+    }
+
+    /**
+     * Restores the heap property below the given index, in the first 'size' entries.
+     */
+    private void siftDown(int index, int size) {
+        while (true) {
+            int worst = index;
+            for (int child = 2 * index + 1; child <= 2 * index + 2 && child < size; child++) {
+                if (isWorse(this.docIds[child], this.scores[child], this.docIds[worst], this.scores[worst])) {
+                    worst = child;
+                }
+            }
+            if (worst == index) {
+                return;
+            }
+            this.swap(index, worst);
+            index = worst;
+        }
+    }
+
+    private void swap(int a, int b) {
+        int docId = this.docIds[a];
+        double score = this.scores[a];
+        this.docIds[a] = this.docIds[b];
+        this.scores[a] = this.scores[b];
+        this.docIds[b] = docId;
+        this.scores[b] = score;
+    }
+
+    /**
+     * Returns 'true' if the first pair ranks below the second.
+     */
+    private static boolean isWorse(int docIdA, double scoreA, int docIdB, double scoreB) {
+        return scoreA < scoreB || (scoreA == scoreB && docIdA > docIdB);
+    }
+}
@@ -0,0 +1,310 @@
+package search.analyzers;
+
+import datastructures.interfaces.IList;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.IntToDoubleFunction;
+
+/**
+ * Finds the k documents scoring highest against a query. A document's score is its
+ * relevance to the query under a RelevanceModel, multiplied by a query-independent
+ * boost, such as the square root of its page rank.
+ *
+ * The search uses the WAND algorithm: every query word has an upper bound on how much
+ * it can add to any document's score, so once we have k results, any document whose
+ * words' bounds add up to no more than the worst of them is skipped without being
+ * scored. The results are exactly those of scoring every document.
+ *
+ * Ties are broken in favour of the lower document id, so the top k are always the same
+ * documents no matter how they were found.
+ */
+public class WandSearcher {
+    private static final int NO_MORE_DOCS = Integer.MAX_VALUE;
+
+    // Bounds are inflated slightly so rounding can never push a document's score
+    // past the sum of its words' bounds
+    private static final double BOUND_SLACK = 1.0 + 1e-9;
+
+    // Marks a max impact that has not been computed yet; doubleToLongBits never returns it
+    private static final long UNKNOWN = -1L;
+
+    private RelevanceModel model;
+    private ITermIndex index;
+    private IntToDoubleFunction boosts;
+
+    // The largest relevance * boost a single posting in each word's postings list can
+    // give its document, per unit of query weight, as the bits of a double indexed by
+    // the word's term id. Each is filled in the first time its word is searched for;
+    // threads racing to fill in the same word compute the same value, so none is locked.
+    private AtomicLongArray maxImpacts;
+
+    /**
+     * @param model   Scores documents against queries. Query weights must not be negative.
+     * @param boosts  Returns the boost of the document with the given id. Boosts
+     *                must not be negative.
+     */
+    public WandSearcher(RelevanceModel model, IntToDoubleFunction boosts) {
+        this.model = model;
+        this.index = model.getIndex();
+        this.boosts = boosts;
+        this.maxImpacts = new AtomicLongArray(this.index.getTermCount());
+        for (int termId = 0; termId < this.index.getTermCount(); termId++) {
+            this.maxImpacts.set(termId, UNKNOWN);
+        }
+    }
+
+    /**
+     * Passes the k highest scoring documents sharing at least one word with the query
+     * to the consumer, in decreasing order of score, skipping documents that cannot
+     * make the top k.
+     *
+     * @throws IllegalArgumentException  if k < 0
+     */
+    public void search(IList<String> query, int k, ScoreConsumer consumer) {
+        this.search(this.model.prepare(query), k, consumer);
+    }
+
+    /**
+     * Like search, but for a query already prepared by this searcher's model.
+     *
+     * @throws IllegalArgumentException  if k < 0
+     */
+    public void search(PreparedQuery query, int k, ScoreConsumer consumer) {
+        TopKCollector topK = new TopKCollector(k);
+        if (k > 0) {
+            this.searchRange(query, this.computeBounds(query), 0, NO_MORE_DOCS, topK);
+        }
+        topK.drain(consumer);
+    }
+
+    /**
+     * Passes the same results as search to the consumer, but if the query's postings
+     * lists hold at least 'minPostings' entries between them, splits the documents
+     * into one range per thread of the pool and searches the ranges at the same time.
+     * Each range keeps its own top k, and these are merged at the end.
+     *
+     * @throws IllegalArgumentException  if k < 0
+     */
+    public void searchInParallel(IList<String> query, int k, ForkJoinPool pool, long minPostings,
+                                 ScoreConsumer consumer) {
+        this.searchInParallel(this.model.prepare(query), k, pool, minPostings, consumer);
+    }
+
+    /**
+     * Like searchInParallel, but for a query already prepared by this searcher's model.
+     *
+     * @throws IllegalArgumentException  if k < 0
+     */
+    public void searchInParallel(PreparedQuery query, int k, ForkJoinPool pool, long minPostings,
+                                 ScoreConsumer consumer) {
+        TopKCollector topK = new TopKCollector(k);
+        if (k > 0) {
+            double[] bounds = this.computeBounds(query);
+            int documentCount = this.index.getDocumentCount();
+            if (query.getPostingsCount() < minPostings || pool.getParallelism() < 2) {
+                this.searchRange(query, bounds, 0, NO_MORE_DOCS, topK);
+            } else {
+                int grain = Math.max(1, (documentCount + pool.getParallelism() - 1) / pool.getParallelism());
+                pool.invoke(new RangeSearch(query, bounds, k, 0, documentCount, grain)).drain(topK);
+            }
+        }
+        topK.drain(consumer);
+    }
+
+    /**
+     * Returns the upper bound on how much each term of the query can add to a score.
+     */
+    private double[] computeBounds(PreparedQuery query) {
+        double[] bounds = new double[query.size()];
+        if (query.getNorm() != 0.0) {
+            for (int i = 0; i < bounds.length; i++) {
+                double maxImpact = this.getMaxImpact(query.getTermId(i), query.getPostings(i));
+                bounds[i] = query.getWeight(i) / query.getNorm() * maxImpact * BOUND_SLACK;
+            }
+        }
+        return bounds;
+    }
+
+    /**
+     * Offers every document with an id in [start, end) that could make the top k to
+     * the collector.
+     */
+    private void searchRange(PreparedQuery query, double[] bounds, int start, int end, TopKCollector topK) {
+        // 'terms' stays in the order the exhaustive search adds up scores in, so both
+        // produce identical scores; 'sorted' is reordered by current document id
+        Term[] terms = new Term[query.size()];
+        for (int i = 0; i < terms.length; i++) {
+            terms[i] = new Term(query.getPostings(i), query.getWeight(i), bounds[i], start);
+        }
+        Term[] sorted = terms.clone();
+
+        while (true) {
+            sortByDocId(sorted);
+
+            // Find the first term at which the bounds so far could beat the worst result
+            double threshold = topK.isFull() ? topK.getThreshold() : Double.NEGATIVE_INFINITY;
+            double bound = 0.0;
+            int pivot = -1;
+            for (int i = 0; i < sorted.length && sorted[i].docId() < end; i++) {
+                bound += sorted[i].bound;
+                if (bound > threshold) {
+                    pivot = i;
+                    break;
+                }
+            }
+            if (pivot == -1) {
+                break;
+            }
+
+            int pivotDoc = sorted[pivot].docId();
+            if (sorted[0].docId() == pivotDoc) {
+                double sum = 0.0;
+                for (Term term : terms) {
+                    if (term.docId() == pivotDoc) {
+                        sum += this.model.scorePosting(term.postings, term.cursor) * term.queryWeight;
+                        term.cursor++;
+                    }
+                }
+                double relevance = this.model.scoreDocument(pivotDoc, sum, query.getNorm());
+                topK.accept(pivotDoc, relevance * this.boosts.applyAsDouble(pivotDoc));
+            } else {
+                // No document before the pivot's contains enough words to beat the worst result
+                for (int i = 0; i < pivot; i++) {
+                    sorted[i].cursor = sorted[i].postings.advance(sorted[i].cursor, pivotDoc);
+                }
+            }
+        }
+    }
+
+    /**
+     * Passes the k highest scoring documents sharing at least one word with the query
+     * to the consumer, in decreasing order of score, after scoring every one of them.
+     *
+     * @throws IllegalArgumentException  if k < 0
+     */
+    public void searchExhaustively(IList<String> query, int k, ScoreConsumer consumer) {
+        this.searchExhaustively(this.model.prepare(query), k, consumer);
+    }
+
+    /**
+     * Like searchExhaustively, but for a query already prepared by this searcher's model.
+     *
+     * @throws IllegalArgumentException  if k < 0
+     */
+    public void searchExhaustively(PreparedQuery query, int k, ScoreConsumer consumer) {
+        TopKCollector topK = new TopKCollector(k);
+        if (k == 0) {
+            return;
+        }
+        this.model.computeRelevances(query, (docId, relevance) -> {
+            topK.accept(docId, relevance * this.boosts.applyAsDouble(docId));
+        });
+        topK.drain(consumer);
+    }
+
+    /**
+     * Returns the max impact of the word with the given term id, whose postings list
+     * is given, or 0 if no document contains the word.
+     */
+    private double getMaxImpact(int termId, Postings postings) {
+        if (termId == -1) {
+            return 0.0;
+        }
+        long bits = this.maxImpacts.get(termId);
+        if (bits != UNKNOWN) {
+            return Double.longBitsToDouble(bits);
+        }
+
+        postings = postings.duplicate();
+        double maxImpact = 0.0;
+        for (int i = 0; i < postings.size(); i++) {
+            int docId = postings.getDocId(i);
+            double relevance = this.model.scoreDocument(docId, this.model.scorePosting(postings, i), 1.0);
+            maxImpact = Math.max(maxImpact, relevance * this.boosts.applyAsDouble(docId));
+        }
+
+        this.maxImpacts.set(termId, Double.doubleToLongBits(maxImpact));
+        return maxImpact;
+    }
+
+    /**
+     * Sorts the terms by their current document id. Queries only have a handful of
+     * words, and the order barely changes between calls, so insertion sort is fastest.
+     */
+    private static void sortByDocId(Term[] terms) {
+        for (int i = 1; i < terms.length; i++) {
+            Term term = terms[i];
+            int j = i - 1;
+            while (j >= 0 && terms[j].docId() > term.docId()) {
+                terms[j + 1] = terms[j];
+                j--;
+            }
+            terms[j + 1] = term;
+        }
+    }
+
+    /**
+     * Searches a range of documents, splitting it in half until it is at most
+     * 'grain' documents long, and merges the top k of each half.
+     */
+    private class RangeSearch extends RecursiveTask<TopKCollector> {
+        private static final long serialVersionUID = 1L;
+
+        private final PreparedQuery query;
+        private final double[] bounds;
+        private final int k;
+        private final int start;
+        private final int end;
+        private final int grain;
+
+        public RangeSearch(PreparedQuery query, double[] bounds, int k, int start, int end, int grain) {
+            this.query = query;
+            this.bounds = bounds;
+            this.k = k;
+            this.start = start;
+            this.end = end;
+            this.grain = grain;
+        }
+
+        @Override
+        protected TopKCollector compute() {
+            if (this.end - this.start <= this.grain) {
+                TopKCollector topK = new TopKCollector(this.k);
+                WandSearcher.this.searchRange(this.query, this.bounds, this.start, this.end, topK);
+                return topK;
+            }
+            int middle = (this.start + this.end) >>> 1;
+            RangeSearch left = new RangeSearch(this.query, this.bounds, this.k, this.start, middle, this.grain);
+            RangeSearch right = new RangeSearch(this.query, this.bounds, this.k, middle, this.end, this.grain);
+            left.fork();
+            TopKCollector topK = right.compute();
+            left.join().drain(topK);
+            return topK;
+        }
+    }
+
+    private static class Term {
+        public final Postings postings;
+        public final double queryWeight;
+        public final double bound;
+        public int cursor;
+
+        /**
+         * Constructs a term positioned at the first document with an id of at least 'start'.
+         * It reads its own duplicate of the postings list, so ranges can be searched at
+         * the same time.
+         */
+        public Term(Postings postings, double queryWeight, double bound, int start) {
+            this.postings = postings.duplicate();
+            this.queryWeight = queryWeight;
+            this.bound = bound;
+            this.cursor = this.postings.advance(0, start);
+        }
+
+        public int docId() {
+            return this.cursor < this.postings.size() ? this.postings.getDocId(this.cursor) : NO_MORE_DOCS;
+        }
+    }
+}
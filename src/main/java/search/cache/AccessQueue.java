@@ -0,0 +1,82 @@
+package search.cache;
+
+/**
+ * A doubly linked list of cache entries, ordered from least to most recently used,
+ * that keeps track of the total weight of its entries.
+ *
+ * Entries are linked in place, so moving one to the back takes constant time.
+ */
+class AccessQueue<K> {
+    private Node<K> sentinel;
+    private long weight;
+
+    public AccessQueue() {
+        this.sentinel = new Node<>(null, 0);
+        this.sentinel.prev = this.sentinel;
+        this.sentinel.next = this.sentinel;
+        this.weight = 0;
+    }
+
+    public boolean isEmpty() {
+        return this.sentinel.next == this.sentinel;
+    }
+
+    public long getWeight() {
+        return this.weight;
+    }
+
+    /**
+     * Returns the least recently used entry, or null if the queue is empty.
+     */
+    public Node<K> peekFirst() {
+        return this.isEmpty() ? null : this.sentinel.next;
+    }
+
+    /**
+     * Adds the given entry as the most recently used one.
+     */
+    public void addLast(Node<K> node) {
+        node.prev = this.sentinel.prev;
+        node.next = this.sentinel;
+        this.sentinel.prev.next = node;
+        this.sentinel.prev = node;
+        this.weight += node.weight;
+    }
+
+    /**
+     * Unlinks the given entry, which must be in this queue.
+     */
+    public void remove(Node<K> node) {
+        node.prev.next = node.next;
+        node.next.prev = node.prev;
+        node.prev = null;
+        node.next = null;
+        this.weight -= node.weight;
+    }
+
+    public void moveToLast(Node<K> node) {
+        this.remove(node);
+        this.addLast(node);
+    }
+
+    public void clear() {
+        this.sentinel.prev = this.sentinel;
+        this.sentinel.next = this.sentinel;
+        this.weight = 0;
+    }
+
+    public static class Node<K> {
+        public final K key;
+        public final long weight;
+        public Node<K> prev;
+        public Node<K> next;
+
+        // Which queue this entry is in, for policies that keep several
+        public int segment;
+
+        public Node(K key, long weight) {
+            this.key = key;
+            this.weight = weight;
+        }
+    }
+}
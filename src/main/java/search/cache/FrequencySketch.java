@@ -0,0 +1,89 @@
+package search.cache;
+
+/**
+ * Estimates how often each key has been seen recently, in a fixed amount of memory.
+ *
+ * This is a count-min sketch: each key maps to one small counter in each of several
+ * rows, and its estimate is the smallest of them. Keys sharing counters can only make
+ * an estimate too high, never too low. Counters saturate at 15, and once enough keys
+ * have been counted every counter is halved, so keys that stop being seen fade out.
+ */
+class FrequencySketch {
+    private static final int DEPTH = 4;
+    private static final int MAX_COUNT = 15;
+    private static final int MAX_WIDTH = 1 << 24;
+
+    // Odd multipliers picking a different counter for the same key in each row
+    private static final int[] SEEDS = {0x9E3779B9, 0x85EBCA6B, 0xC2B2AE35, 0x27D4EB2F};
+
+    private byte[] counters;
+    private int width;
+    private int shift;
+    private int additions;
+    private int resetThreshold;
+
+    /**
+     * Constructs a sketch sized for roughly the given number of distinct keys.
+     */
+    public FrequencySketch(long expectedKeys) {
+        this.width = 16;
+        while (this.width < expectedKeys && this.width < MAX_WIDTH) {
+            this.width *= 2;
+        }
+        this.shift = 32 - Integer.numberOfTrailingZeros(this.width);
+        this.counters = new byte[DEPTH * this.width];
+        this.additions = 0;
+        this.resetThreshold = 10 * this.width;
+    }
+
+    /**
+     * Counts one more sighting of the given key.
+     */
+    public void increment(Object key) {
+        int hash = spread(key.hashCode());
+        boolean added = false;
+        for (int row = 0; row < DEPTH; row++) {
+            int index = this.indexOf(hash, row);
+            if (this.counters[index] < MAX_COUNT) {
+                this.counters[index]++;
+                added = true;
+            }
+        }
+
+        if (added) {
+            this.additions++;
+            if (this.additions >= this.resetThreshold) {
+                this.reset();
+            }
+        }
+    }
+
+    /**
+     * Returns the estimated number of recent sightings of the given key, up to 15.
+     */
+    public int frequency(Object key) {
+        int hash = spread(key.hashCode());
+        int frequency = MAX_COUNT;
+        for (int row = 0; row < DEPTH; row++) {
+            frequency = Math.min(frequency, this.counters[this.indexOf(hash, row)]);
+        }
+        return frequency;
+    }
+
+    private int indexOf(int hash, int row) {
+        return row * this.width + ((hash * SEEDS[row]) >>> this.shift);
+    }
+
+    private void reset() {
+        for (int i = 0; i < this.counters.length; i++) {
+            this.counters[i] = (byte) (this.counters[i] >>> 1);
+        }
+        this.additions /= 2;
+    }
+
+    private static int spread(int hash) {
+        hash ^= hash >>> 16;
+        hash *= 0x45D9F3B;
+        return hash ^ (hash >>> 16);
+    }
+}
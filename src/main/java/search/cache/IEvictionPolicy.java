@@ -0,0 +1,41 @@
+package search.cache;
+
+import java.util.function.Consumer;
+
+/**
+ * Decides which entries a bounded cache gives up when it runs out of room.
+ *
+ * Every entry has a weight, such as 1 or its estimated size in bytes, and the policy
+ * keeps the total weight of the keys it tracks within the limit it was created with.
+ * Implementations do not need to be thread-safe; the cache calls them under its lock.
+ */
+public interface IEvictionPolicy<K> {
+    /**
+     * Records a lookup that found the given key in the cache.
+     */
+    public void recordHit(K key);
+
+    /**
+     * Records a lookup for a key that was not in the cache.
+     */
+    public void recordMiss(K key);
+
+    /**
+     * Starts tracking a key that was just added to the cache, then passes every key
+     * that must leave the cache to keep it within its limit to 'evicted'. This may
+     * include the new key itself, if the policy decides it is not worth keeping.
+     *
+     * The key must not already be tracked.
+     */
+    public void add(K key, long weight, Consumer<K> evicted);
+
+    /**
+     * Stops tracking the given key, if it is tracked.
+     */
+    public void remove(K key);
+
+    /**
+     * Stops tracking every key.
+     */
+    public void clear();
+}
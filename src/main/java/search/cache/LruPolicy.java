@@ -0,0 +1,67 @@
+package search.cache;
+
+import datastructures.concrete.dictionaries.ChainedHashDictionary;
+import datastructures.interfaces.IDictionary;
+
+import java.util.function.Consumer;
+
+/**
+ * Evicts the least recently used entries first.
+ */
+public class LruPolicy<K> implements IEvictionPolicy<K> {
+    private long maxWeight;
+    private IDictionary<K, AccessQueue.Node<K>> nodes;
+    private AccessQueue<K> queue;
+
+    /**
+     * @throws IllegalArgumentException  if maxWeight is negative
+     */
+    public LruPolicy(long maxWeight) {
+        if (maxWeight < 0) {
+            throw new IllegalArgumentException("Maximum weight must not be negative");
+        }
+        this.maxWeight = maxWeight;
+        this.nodes = new ChainedHashDictionary<>();
+        this.queue = new AccessQueue<>();
+    }
+
+    @Override
+    public void recordHit(K key) {
+        AccessQueue.Node<K> node = this.nodes.getOrDefault(key, null);
+        if (node != null) {
+            this.queue.moveToLast(node);
+        }
+    }
+
+    @Override
+    public void recordMiss(K key) {
+        // Only recency matters here
+    }
+
+    @Override
+    public void add(K key, long weight, Consumer<K> evicted) {
+        AccessQueue.Node<K> node = new AccessQueue.Node<>(key, weight);
+        this.nodes.put(key, node);
+        this.queue.addLast(node);
+
+        while (this.queue.getWeight() > this.maxWeight) {
+            AccessQueue.Node<K> victim = this.queue.peekFirst();
+            this.queue.remove(victim);
+            this.nodes.remove(victim.key);
+            evicted.accept(victim.key);
+        }
+    }
+
+    @Override
+    public void remove(K key) {
+        if (this.nodes.containsKey(key)) {
+            this.queue.remove(this.nodes.remove(key));
+        }
+    }
+
+    @Override
+    public void clear() {
+        this.nodes = new ChainedHashDictionary<>();
+        this.queue.clear();
+    }
+}
@@ -0,0 +1,220 @@
+package search.cache;
+
+import datastructures.concrete.dictionaries.ChainedHashDictionary;
+import datastructures.interfaces.IDictionary;
+import datastructures.interfaces.IList;
+import search.models.Result;
+
+import java.util.Arrays;
+
+/**
+ * A bounded cache of search results, keyed by the query's words and the number of
+ * results asked for. It is safe to use from several threads at once.
+ *
+ * Queries holding the same words in a different order share an entry (see Key).
+ *
+ * Results are only valid for the index they were computed from, so every lookup
+ * passes the generation of the engine's current index (see SearchEngine.getGeneration).
+ * As soon as a newer generation is seen, everything cached is thrown away.
+ *
+ * The cached lists are handed out to every caller asking for the same query, so they
+ * must not be modified.
+ */
+public class QueryCache {
+    public enum Eviction { LRU, TINY_LFU }
+
+    // Rough sizes on a 64-bit JVM used to estimate an entry's size in bytes. The
+    // summaries of the results are shared with the engine, so they are not counted.
+    private static final long ENTRY_BYTES = 128;
+    private static final long WORD_BYTES = 48;
+    private static final long RESULT_BYTES = 32;
+
+    // Roughly how large an entry for a short query with 20 results is, used to guess
+    // how many entries a byte limit allows
+    private static final long TYPICAL_ENTRY_BYTES = 1024;
+
+    private IDictionary<Key, IList<Result>> entries;
+    private IEvictionPolicy<Key> policy;
+    private boolean weighByBytes;
+    private long weight;
+    private long generation;
+
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+
+    private QueryCache(IEvictionPolicy<Key> policy, boolean weighByBytes) {
+        this.entries = new ChainedHashDictionary<>();
+        this.policy = policy;
+        this.weighByBytes = weighByBytes;
+        this.weight = 0;
+        this.generation = Long.MIN_VALUE;
+    }
+
+    /**
+     * Returns a cache holding at most the given number of queries.
+     *
+     * @throws IllegalArgumentException  if maxEntries is negative
+     */
+    public static QueryCache withMaxEntries(Eviction eviction, long maxEntries) {
+        return new QueryCache(makePolicy(eviction, maxEntries, maxEntries), false);
+    }
+
+    /**
+     * Returns a cache whose entries take up at most roughly the given number of bytes.
+     *
+     * @throws IllegalArgumentException  if maxBytes is negative
+     */
+    public static QueryCache withMaxBytes(Eviction eviction, long maxBytes) {
+        return new QueryCache(makePolicy(eviction, maxBytes, maxBytes / TYPICAL_ENTRY_BYTES), true);
+    }
+
+    private static IEvictionPolicy<Key> makePolicy(Eviction eviction, long maxWeight, long expectedEntries) {
+        if (eviction == Eviction.LRU) {
+            return new LruPolicy<>(maxWeight);
+        } else {
+            return new TinyLfuPolicy<>(maxWeight, expectedEntries);
+        }
+    }
+
+    /**
+     * Returns the cached results for the given query, or null if there are none.
+     */
+    public synchronized IList<Result> get(IList<String> query, int k, long generation) {
+        this.checkGeneration(generation);
+
+        Key key = new Key(query, k);
+        IList<Result> results = this.entries.getOrDefault(key, null);
+        if (results != null) {
+            this.hitCount++;
+            this.policy.recordHit(key);
+        } else {
+            this.missCount++;
+            this.policy.recordMiss(key);
+        }
+        return results;
+    }
+
+    /**
+     * Caches the results of the given query, computed from the given generation of the
+     * index. Results from an older generation than the cache has seen are ignored.
+     */
+    public synchronized void put(IList<String> query, int k, long generation, IList<Result> results) {
+        this.checkGeneration(generation);
+        if (generation != this.generation) {
+            return;
+        }
+
+        Key key = new Key(query, k);
+        if (this.entries.containsKey(key)) {
+            // Another thread computed the same query at the same time
+            this.removeEntry(key);
+        }
+
+        long entryWeight = this.weighByBytes ? estimateBytes(key, results) : 1;
+        this.entries.put(key, results);
+        this.weight += entryWeight;
+        this.policy.add(key, entryWeight, evicted -> {
+            this.removeEntry(evicted);
+            this.evictionCount++;
+        });
+    }
+
+    /**
+     * Throws away every cached result.
+     */
+    public synchronized void invalidateAll() {
+        this.entries = new ChainedHashDictionary<>();
+        this.policy.clear();
+        this.weight = 0;
+    }
+
+    public synchronized int size() {
+        return this.entries.size();
+    }
+
+    /**
+     * Returns the total weight of the cached entries: their number, or their estimated
+     * size in bytes if this cache is limited by bytes.
+     */
+    public synchronized long getWeight() {
+        return this.weight;
+    }
+
+    public synchronized long getHitCount() {
+        return this.hitCount;
+    }
+
+    public synchronized long getMissCount() {
+        return this.missCount;
+    }
+
+    public synchronized long getEvictionCount() {
+        return this.evictionCount;
+    }
+
+    private void checkGeneration(long generation) {
+        if (generation > this.generation) {
+            this.invalidateAll();
+            this.generation = generation;
+        }
+    }
+
+    private void removeEntry(Key key) {
+        IList<Result> results = this.entries.remove(key);
+        this.policy.remove(key);
+        this.weight -= this.weighByBytes ? estimateBytes(key, results) : 1;
+    }
+
+    private static long estimateBytes(Key key, IList<Result> results) {
+        long bytes = ENTRY_BYTES + RESULT_BYTES * results.size();
+        for (String word : key.words) {
+            bytes += WORD_BYTES + 2 * word.length();
+        }
+        return bytes;
+    }
+
+    /**
+     * A query's words, sorted, and the number of results asked for.
+     *
+     * Every relevance model weighs a query by its bag of words, so the order of the words
+     * makes no difference beyond the order a document's scores are added up in, which
+     * only affects the last bits of the scores. The cosine model ignores repeated words,
+     * but the BM25 model adds a word's weight once per repeat, so the cache (which does
+     * not know which model computed its results) keeps them.
+     */
+    private static class Key {
+        public final String[] words;
+        public final int k;
+        private final int hashCode;
+
+        public Key(IList<String> query, int k) {
+            this.words = new String[query.size()];
+            int i = 0;
+            for (String word : query) {
+                this.words[i] = word;
+                i++;
+            }
+            Arrays.sort(this.words);
+            this.k = k;
+            this.hashCode = 31 * Arrays.hashCode(this.words) + k;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) other;
+            return this.k == key.k && Arrays.equals(this.words, key.words);
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hashCode;
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package search.cache;
+
+import datastructures.concrete.dictionaries.ChainedHashDictionary;
+import datastructures.interfaces.IDictionary;
+
+import java.util.function.Consumer;
+
+/**
+ * Evicts entries using W-TinyLFU, which keeps the entries most often asked for rather
+ * than just the most recent ones, so a burst of one-off queries cannot flush out the
+ * popular ones.
+ *
+ * New entries start in a small LRU "window" (1% of the weight). Entries pushed out of
+ * the window are only admitted to the main area if they have been asked for more often
+ * than the entry they would displace, as estimated by a FrequencySketch of recent
+ * lookups. The main area is a segmented LRU: entries hit while on probation are
+ * promoted to a protected segment (80% of the main area), and entries pushed out of
+ * that segment go back on probation.
+ */
+public class TinyLfuPolicy<K> implements IEvictionPolicy<K> {
+    private static final int WINDOW = 0;
+    private static final int PROBATION = 1;
+    private static final int PROTECTED = 2;
+
+    private long windowMaxWeight;
+    private long mainMaxWeight;
+    private long protectedMaxWeight;
+
+    private IDictionary<K, AccessQueue.Node<K>> nodes;
+    private AccessQueue<K> window;
+    private AccessQueue<K> probation;
+    private AccessQueue<K> protectedQueue;
+    private FrequencySketch sketch;
+
+    /**
+     * @param expectedEntries  Roughly how many entries fit in maxWeight; used to size
+     *                         the frequency sketch.
+     * @throws IllegalArgumentException  if maxWeight is negative
+     */
+    public TinyLfuPolicy(long maxWeight, long expectedEntries) {
+        if (maxWeight < 0) {
+            throw new IllegalArgumentException("Maximum weight must not be negative");
+        }
+        this.windowMaxWeight = Math.min(maxWeight, Math.max(1, maxWeight / 100));
+        this.mainMaxWeight = maxWeight - this.windowMaxWeight;
+        this.protectedMaxWeight = this.mainMaxWeight * 8 / 10;
+
+        this.nodes = new ChainedHashDictionary<>();
+        this.window = new AccessQueue<>();
+        this.probation = new AccessQueue<>();
+        this.protectedQueue = new AccessQueue<>();
+        this.sketch = new FrequencySketch(expectedEntries);
+    }
+
+    @Override
+    public void recordHit(K key) {
+        this.sketch.increment(key);
+
+        AccessQueue.Node<K> node = this.nodes.getOrDefault(key, null);
+        if (node == null) {
+            return;
+        }
+        if (node.segment == WINDOW) {
+            this.window.moveToLast(node);
+        } else if (node.segment == PROTECTED) {
+            this.protectedQueue.moveToLast(node);
+        } else {
+            this.probation.remove(node);
+            node.segment = PROTECTED;
+            this.protectedQueue.addLast(node);
+
+            while (this.protectedQueue.getWeight() > this.protectedMaxWeight) {
+                AccessQueue.Node<K> demoted = this.protectedQueue.peekFirst();
+                this.protectedQueue.remove(demoted);
+                demoted.segment = PROBATION;
+                this.probation.addLast(demoted);
+            }
+        }
+    }
+
+    @Override
+    public void recordMiss(K key) {
+        this.sketch.increment(key);
+    }
+
+    @Override
+    public void add(K key, long weight, Consumer<K> evicted) {
+        AccessQueue.Node<K> node = new AccessQueue.Node<>(key, weight);
+        node.segment = WINDOW;
+        this.nodes.put(key, node);
+        this.window.addLast(node);
+
+        while (this.window.getWeight() > this.windowMaxWeight) {
+            AccessQueue.Node<K> candidate = this.window.peekFirst();
+            this.window.remove(candidate);
+            this.admit(candidate, evicted);
+        }
+    }
+
+    /**
+     * Moves an entry pushed out of the window onto probation, then evicts either it or
+     * the main area's least recently used entries until the main area fits again.
+     */
+    private void admit(AccessQueue.Node<K> candidate, Consumer<K> evicted) {
+        candidate.segment = PROBATION;
+        this.probation.addLast(candidate);
+
+        while (this.probation.getWeight() + this.protectedQueue.getWeight() > this.mainMaxWeight) {
+            AccessQueue.Node<K> victim = this.probation.peekFirst();
+            if (victim == candidate) {
+                victim = this.protectedQueue.peekFirst();
+            }
+            if (victim == null || this.sketch.frequency(candidate.key) <= this.sketch.frequency(victim.key)) {
+                this.evict(candidate, evicted);
+                return;
+            }
+            this.evict(victim, evicted);
+        }
+    }
+
+    private void evict(AccessQueue.Node<K> node, Consumer<K> evicted) {
+        this.queueOf(node).remove(node);
+        this.nodes.remove(node.key);
+        evicted.accept(node.key);
+    }
+
+    @Override
+    public void remove(K key) {
+        if (this.nodes.containsKey(key)) {
+            AccessQueue.Node<K> node = this.nodes.remove(key);
+            this.queueOf(node).remove(node);
+        }
+    }
+
+    @Override
+    public void clear() {
+        this.nodes = new ChainedHashDictionary<>();
+        this.window.clear();
+        this.probation.clear();
+        this.protectedQueue.clear();
+    }
+
+    private AccessQueue<K> queueOf(AccessQueue.Node<K> node) {
+        if (node.segment == WINDOW) {
+            return this.window;
+        } else if (node.segment == PROBATION) {
+            return this.probation;
+        } else {
+            return this.protectedQueue;
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package search.index;
+
+import search.analyzers.PageRankAnalyzer;
+import search.analyzers.TfIdfAnalyzer;
+import search.misc.exceptions.DataExtractionException;
+import search.models.DocumentRegistry;
+import search.models.WebpageSummary;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * Everything the search engine computes while indexing, saved so a restart can skip
+ * re-reading every page and recomputing every score.
+ *
+ * A snapshot is a single file holding the document summaries, plus an IndexSegment
+ * directory next to it (named after the file, with a '.segment' suffix) holding the
+ * scores. Saving deletes the old snapshot file before replacing the segment and
+ * writes the new one last, so if a snapshot file exists its segment is complete.
+ *
+ * Snapshot file layout (all values are big-endian):
+ *
+ *   int      magic number ("NDLS")
+ *   int      format version
+ *   double   page rank decay, double page rank epsilon, int page rank iteration limit
+ *   int      number of webpage files indexed, int checksum of their paths
+ *   int      number of documents
+ *   for each document: its URI, title and blurb
+ *
+ * Strings are stored as an int byte length followed by UTF-8 bytes. Documents are
+ * stored in order of document id, so the ids survive the round trip.
+ */
+public class EngineSnapshot {
+    private static final int MAGIC = 0x4E444C53;
+    private static final int VERSION = 3;
+
+    private DocumentRegistry registry;
+    private IndexSegment index;
+
+    private EngineSnapshot(DocumentRegistry registry, IndexSegment index) {
+        this.registry = registry;
+        this.index = index;
+    }
+
+    public DocumentRegistry getRegistry() {
+        return this.registry;
+    }
+
+    public IndexSegment getIndex() {
+        return this.index;
+    }
+
+    /**
+     * Returns the directory holding the index segment of the snapshot at the given path.
+     */
+    public static Path getSegmentPath(Path path) {
+        return path.resolveSibling(path.getFileName() + ".segment");
+    }
+
+    /**
+     * Writes a snapshot of the given registry and analyzers to the given path,
+     * replacing any previous snapshot.
+     *
+     * The page rank settings, and the number and checksum of the webpage files the
+     * index was computed from (see getPagesChecksum), are recorded so a snapshot
+     * computed with different settings, or from a different set of pages, is never
+     * loaded by mistake.
+     */
+    public static void save(Path path,
+                            DocumentRegistry registry,
+                            TfIdfAnalyzer tfIdfAnalyzer,
+                            PageRankAnalyzer pageRankAnalyzer,
+                            double decay, double epsilon, int limit,
+                            int pageCount, int pagesChecksum) throws IOException {
+        // If we fail part way through replacing the segment, there is no snapshot to load
+        Files.deleteIfExists(path);
+        IndexSegment.write(getSegmentPath(path), tfIdfAnalyzer, pageRankAnalyzer, registry.size());
+
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeDouble(decay);
+            out.writeDouble(epsilon);
+            out.writeInt(limit);
+            out.writeInt(pageCount);
+            out.writeInt(pagesChecksum);
+
+            int documentCount = registry.size();
+            out.writeInt(documentCount);
+            for (int docId = 0; docId < documentCount; docId++) {
+                WebpageSummary summary = registry.getSummary(docId);
+                writeString(out, summary.getUri().toString());
+                writeString(out, summary.getTitle());
+                writeString(out, summary.getBlurb());
+            }
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads the snapshot at the given path, rebuilding the registry and opening the
+     * index segment stored alongside it.
+     *
+     * Only the segment is served off the heap. The registry needs every URI on the heap
+     * anyway to look documents up by URI, so the summaries are simply read in.
+     *
+     * @throws DataExtractionException  if the file is not a snapshot in the current format,
+     *                                  was computed with different page rank settings
+     *                                  or from different webpage files, or is truncated
+     */
+    public static EngineSnapshot load(Path path,
+                                      double decay, double epsilon, int limit,
+                                      int pageCount, int pagesChecksum) throws IOException {
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(path));
+            DocumentRegistry registry = read(buffer, path, decay, epsilon, limit, pageCount, pagesChecksum);
+            IndexSegment index = IndexSegment.open(getSegmentPath(path));
+            if (index.getDocumentCount() != registry.size()) {
+                throw new DataExtractionException("Snapshot does not match its index segment: " + path);
+            }
+            return new EngineSnapshot(registry, index);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException
+                | IllegalArgumentException | NegativeArraySizeException ex) {
+            throw new DataExtractionException("Snapshot is truncated or malformed: " + path, ex);
+        }
+    }
+
+    private static DocumentRegistry read(ByteBuffer buffer, Path path,
+                                         double decay, double epsilon, int limit,
+                                         int pageCount, int pagesChecksum) {
+        if (buffer.remaining() < 8 || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+            throw new DataExtractionException("Snapshot is not in the current format: " + path);
+        }
+        if (buffer.getDouble() != decay || buffer.getDouble() != epsilon || buffer.getInt() != limit) {
+            throw new DataExtractionException("Snapshot was computed with different page rank settings: " + path);
+        }
+        if (buffer.getInt() != pageCount || buffer.getInt() != pagesChecksum) {
+            throw new DataExtractionException("Snapshot was computed from different webpages: " + path);
+        }
+
+        int documentCount = buffer.getInt();
+        WebpageSummary[] summaries = new WebpageSummary[documentCount];
+        for (int docId = 0; docId < documentCount; docId++) {
+            URI uri = URI.create(readString(buffer));
+            String title = readString(buffer);
+            String blurb = readString(buffer);
+            summaries[docId] = new WebpageSummary(uri, title, blurb);
+        }
+        return new DocumentRegistry(summaries);
+    }
+
+    /**
+     * Returns a checksum of the paths of the given webpage files, relative to the given
+     * folder. The paths are sorted first, so the order they were found in does not matter.
+     */
+    public static int getPagesChecksum(Path root, Path[] paths) {
+        String[] relative = new String[paths.length];
+        for (int i = 0; i < paths.length; i++) {
+            relative[i] = root.relativize(paths[i]).toString();
+        }
+        Arrays.sort(relative);
+
+        CRC32 checksum = new CRC32();
+        for (String name : relative) {
+            byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+            checksum.update(bytes, 0, bytes.length);
+            // Separate the names, so "ab" + "c" differs from "a" + "bc"
+            checksum.update(0);
+        }
+        return (int) checksum.getValue();
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        // A corrupt length must not make us allocate more than the file holds
+        if (length > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
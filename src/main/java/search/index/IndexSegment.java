@@ -0,0 +1,294 @@
+package search.index;
+
+import datastructures.concrete.KVPair;
+import search.analyzers.ITermIndex;
+import search.analyzers.InvertedIndex;
+import search.analyzers.PageRankAnalyzer;
+import search.analyzers.Postings;
+import search.analyzers.TfIdfAnalyzer;
+import search.misc.exceptions.DataExtractionException;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * An immutable, on-disk copy of the index computed by the TfIdfAnalyzer and
+ * PageRankAnalyzer, served straight out of memory-mapped files.
+ *
+ * Postings are decoded a block at a time as a query reads them (see SegmentPostings),
+ * so the heap needed to serve queries depends on the queries rather than the size
+ * of the corpus. The rest of the index stays in the operating system's page cache.
+ *
+ * A segment is a directory containing five files (all values are big-endian):
+ *
+ *   terms.seg      int magic, int version, int number of words, int padding,
+ *                  then one fixed-size entry per word, sorted by the word's UTF-8 bytes:
+ *                      double IDF score, int position of the word's postings,
+ *                      int number of postings
+ *                  then the words themselves, as a TermDictionary
+ *   postings.seg   int magic, int version, int number of postings, int padding,
+ *                  then every word's postings list, compressed by PostingsCodec
+ *   norms.seg      int magic, int version, int number of documents, int padding,
+ *                  then the norm of every document's TF-IDF vector as a double
+ *   lengths.seg    int magic, int version, int number of documents, int padding,
+ *                  then the number of words in every document as an int
+ *   ranks.seg      int magic, int version, int number of documents, int padding,
+ *                  then the page rank of every document as a double
+ *
+ * Each word's postings are stored contiguously, in increasing order of document id.
+ * Weights are not stored but recomputed from the frequencies, lengths and IDF scores,
+ * which leaves a few bytes per posting.
+ *
+ * Files are never rewritten in place: a segment still mapped by a running engine
+ * would see its files change, or be cut short, underneath it.
+ */
+public class IndexSegment implements ITermIndex {
+    private static final int MAGIC = 0x4E444C58;
+    private static final int VERSION = 4;
+    private static final int HEADER_SIZE = 16;
+    private static final int TERM_ENTRY_SIZE = 16;
+
+    private static final String TERMS_FILE = "terms.seg";
+    private static final String POSTINGS_FILE = "postings.seg";
+    private static final String NORMS_FILE = "norms.seg";
+    private static final String LENGTHS_FILE = "lengths.seg";
+    private static final String RANKS_FILE = "ranks.seg";
+    private static final String[] FILES = {TERMS_FILE, POSTINGS_FILE, NORMS_FILE, LENGTHS_FILE, RANKS_FILE};
+
+    private ByteBuffer terms;
+    private TermDictionary dictionary;
+    private ByteBuffer postings;
+    private DoubleBuffer norms;
+    private IntBuffer lengths;
+    private DoubleBuffer pageRanks;
+
+    private IndexSegment(Path directory) throws IOException {
+        this.terms = map(directory.resolve(TERMS_FILE));
+        int termCount = this.terms.getInt(8);
+        this.dictionary = new TermDictionary(slice(this.terms, HEADER_SIZE + termCount * TERM_ENTRY_SIZE), termCount);
+
+        this.postings = map(directory.resolve(POSTINGS_FILE));
+
+        this.norms = slice(map(directory.resolve(NORMS_FILE)), HEADER_SIZE).asDoubleBuffer();
+        this.lengths = slice(map(directory.resolve(LENGTHS_FILE)), HEADER_SIZE).asIntBuffer();
+        this.pageRanks = slice(map(directory.resolve(RANKS_FILE)), HEADER_SIZE).asDoubleBuffer();
+        if (this.norms.limit() != this.pageRanks.limit() || this.lengths.limit() != this.norms.limit()) {
+            throw new DataExtractionException("Index segment files do not match: " + directory);
+        }
+    }
+
+    /**
+     * Memory-maps the segment stored in the given directory.
+     *
+     * @throws DataExtractionException  if any file is missing its header or is in an
+     *                                  older format
+     */
+    public static IndexSegment open(Path directory) throws IOException {
+        return new IndexSegment(directory);
+    }
+
+    /**
+     * Writes the index computed by the given analyzers to the given directory,
+     * creating it if necessary.
+     *
+     * Every file is written under a temporary name first, then moved over the old one
+     * once all of them are complete, so anything still mapping the old files keeps
+     * reading them unchanged.
+     *
+     * @param documentCount  The number of documents known to both analyzers.
+     */
+    public static void write(Path directory,
+                             TfIdfAnalyzer tfIdfAnalyzer,
+                             PageRankAnalyzer pageRankAnalyzer,
+                             int documentCount) throws IOException {
+        Files.createDirectories(directory);
+        InvertedIndex index = tfIdfAnalyzer.getInvertedIndex();
+
+        // Sort the words by their UTF-8 bytes so lookups can binary search the entries
+        byte[][] words = new byte[tfIdfAnalyzer.getIdfScores().size()][];
+        int next = 0;
+        for (KVPair<String, Double> pair : tfIdfAnalyzer.getIdfScores()) {
+            words[next] = pair.getKey().getBytes(StandardCharsets.UTF_8);
+            next++;
+        }
+        Arrays.sort(words, TermDictionary::compareBytes);
+        String[] terms = new String[words.length];
+        for (int i = 0; i < words.length; i++) {
+            terms[i] = new String(words[i], StandardCharsets.UTF_8);
+        }
+
+        // The postings go first, so the terms file knows where each list starts
+        int[] positions = new int[words.length];
+        int[] sizes = new int[words.length];
+        int postingsCount = 0;
+        for (int i = 0; i < words.length; i++) {
+            sizes[i] = index.getDocumentFrequency(terms[i]);
+            postingsCount += sizes[i];
+        }
+        try (DataOutputStream postingsOut = openOutput(directory, POSTINGS_FILE, postingsCount)) {
+            for (int i = 0; i < words.length; i++) {
+                positions[i] = postingsOut.size();
+                PostingsCodec.encode(index.getPostings(terms[i]), postingsOut);
+            }
+        }
+
+        try (DataOutputStream termsOut = openOutput(directory, TERMS_FILE, words.length)) {
+            for (int i = 0; i < words.length; i++) {
+                termsOut.writeDouble(index.getIdfScore(terms[i]));
+                termsOut.writeInt(positions[i]);
+                termsOut.writeInt(sizes[i]);
+            }
+            TermDictionary.write(words, termsOut);
+        }
+
+        try (DataOutputStream normsOut = openOutput(directory, NORMS_FILE, documentCount)) {
+            for (int docId = 0; docId < documentCount; docId++) {
+                normsOut.writeDouble(tfIdfAnalyzer.getDocumentNorm(docId));
+            }
+        }
+        try (DataOutputStream lengthsOut = openOutput(directory, LENGTHS_FILE, documentCount)) {
+            for (int docId = 0; docId < documentCount; docId++) {
+                lengthsOut.writeInt(index.getDocumentLength(docId));
+            }
+        }
+        try (DataOutputStream ranksOut = openOutput(directory, RANKS_FILE, documentCount)) {
+            for (int docId = 0; docId < documentCount; docId++) {
+                ranksOut.writeDouble(pageRankAnalyzer.computePageRank(docId));
+            }
+        }
+
+        for (String name : FILES) {
+            Files.move(getTempPath(directory, name), directory.resolve(name),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+
+    @Override
+    public int getDocumentCount() {
+        return this.norms.limit();
+    }
+
+    @Override
+    public int getTermCount() {
+        return this.dictionary.size();
+    }
+
+    @Override
+    public int getTermId(String word) {
+        return this.dictionary.find(word);
+    }
+
+    @Override
+    public double getIdfScore(String word) {
+        int entry = this.findEntry(word);
+        return entry == -1 ? 0.0 : this.terms.getDouble(entry);
+    }
+
+    @Override
+    public int getDocumentFrequency(String word) {
+        int entry = this.findEntry(word);
+        return entry == -1 ? 0 : this.terms.getInt(entry + 12);
+    }
+
+    @Override
+    public void forEachWord(ObjIntConsumer<String> consumer) {
+        this.dictionary.forEachWithPrefix("", (termId, word) -> {
+            consumer.accept(word, this.terms.getInt(HEADER_SIZE + termId * TERM_ENTRY_SIZE + 12));
+        });
+    }
+
+    @Override
+    public Postings getPostings(String word) {
+        int entry = this.findEntry(word);
+        if (entry == -1) {
+            return Postings.EMPTY;
+        }
+        double idf = this.terms.getDouble(entry);
+        int start = this.terms.getInt(entry + 8);
+        int size = this.terms.getInt(entry + 12);
+        return new SegmentPostings(this.postings, start, size, idf, this.lengths);
+    }
+
+    @Override
+    public double getDocumentNorm(int docId) {
+        return this.norms.get(docId);
+    }
+
+    @Override
+    public int getDocumentLength(int docId) {
+        return this.lengths.get(docId);
+    }
+
+    /**
+     * Returns the page rank of the document with the given id.
+     */
+    public double getPageRank(int docId) {
+        return this.pageRanks.get(docId);
+    }
+
+    /**
+     * Returns the words in this segment, sorted so that prefix and range lookups only
+     * visit matching words.
+     */
+    public TermDictionary getTerms() {
+        return this.dictionary;
+    }
+
+    /**
+     * Returns the byte position of the given word's entry in the terms file, or -1
+     * if the word is not in this segment.
+     */
+    private int findEntry(String word) {
+        int termId = this.dictionary.find(word);
+        return termId == -1 ? -1 : HEADER_SIZE + termId * TERM_ENTRY_SIZE;
+    }
+
+    /**
+     * Opens the temporary file the given segment file is written to, and writes its header.
+     */
+    private static DataOutputStream openOutput(Path directory, String name, int count) throws IOException {
+        Path path = getTempPath(directory, name);
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)));
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(count);
+        out.writeInt(0);
+        return out;
+    }
+
+    private static Path getTempPath(Path directory, String name) {
+        return directory.resolve(name + ".tmp");
+    }
+
+    private static ByteBuffer map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new DataExtractionException("Index segment file is too large to map: " + path);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                throw new DataExtractionException("Index segment file is not in the current format: " + path);
+            }
+            return buffer;
+        }
+    }
+
+    private static ByteBuffer slice(ByteBuffer buffer, int start) {
+        ByteBuffer copy = buffer.duplicate();
+        copy.position(start);
+        return copy.slice();
+    }
+}
@@ -0,0 +1,309 @@
+package search.index;
+
+import search.analyzers.Postings;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Compresses the document ids and frequencies of a postings list, so a segment's
+ * postings take a few bytes each and the lists of common words fit in cache.
+ *
+ * The postings are cut into blocks of 128. An encoded list starts with one skip entry
+ * per block (all values are big-endian):
+ *
+ *   int id of the block's last document, int byte position of the block
+ *
+ * counting positions from the end of the skip entries. Each document id is stored as
+ * the gap from the document before it, minus one (the first block starts from -1),
+ * and each frequency minus one, since both are at least one.
+ *
+ * Full blocks use PFor-delta: the gaps and then the frequencies are each stored as
+ *
+ *   byte bit width, byte number of exceptions,
+ *   128 values packed into 4 ints per bit of width, lowest bits first,
+ *   then for every value too wide to fit: byte its position, varint its missing high bits
+ *
+ * where the width is chosen to make the block smallest, so a few large gaps do not
+ * widen every value. The final block, if shorter than 128 postings, is a gap varint
+ * followed by a frequency varint for every posting.
+ *
+ * Weights are not stored: a word's weight in a document is its frequency divided by
+ * the document's length, times the word's IDF score, so the segment recomputes it.
+ */
+final class PostingsCodec {
+    public static final int BLOCK_SIZE = 128;
+    public static final int SKIP_ENTRY_SIZE = 8;
+
+    private static final int MAX_WIDTH = Integer.SIZE - 1;
+
+    private PostingsCodec() {}
+
+    /**
+     * Returns the number of blocks a postings list of the given size is cut into.
+     */
+    public static int getBlockCount(int size) {
+        return (size + BLOCK_SIZE - 1) / BLOCK_SIZE;
+    }
+
+    /**
+     * Writes the given postings list to the output.
+     *
+     * Precondition: every frequency in the postings list is positive.
+     */
+    public static void encode(Postings postings, DataOutputStream out) throws IOException {
+        int size = postings.size();
+        int[] gaps = new int[BLOCK_SIZE];
+        int[] frequencies = new int[BLOCK_SIZE];
+        ByteArrayOutputStream blockBytes = new ByteArrayOutputStream();
+        DataOutputStream blocks = new DataOutputStream(blockBytes);
+
+        int previous = -1;
+        for (int start = 0; start < size; start += BLOCK_SIZE) {
+            int count = Math.min(BLOCK_SIZE, size - start);
+            for (int i = 0; i < count; i++) {
+                int docId = postings.getDocId(start + i);
+                gaps[i] = docId - previous - 1;
+                frequencies[i] = postings.getFrequency(start + i) - 1;
+                previous = docId;
+            }
+
+            out.writeInt(previous);
+            out.writeInt(blocks.size());
+            if (count == BLOCK_SIZE) {
+                writePacked(gaps, blocks);
+                writePacked(frequencies, blocks);
+            } else {
+                for (int i = 0; i < count; i++) {
+                    writeVarint(gaps[i], blocks);
+                    writeVarint(frequencies[i], blocks);
+                }
+            }
+        }
+        blocks.flush();
+        blockBytes.writeTo(out);
+    }
+
+    /**
+     * Reads the blocks of a single encoded postings list, in any order.
+     */
+    public static class Decoder {
+        private final ByteBuffer buffer;
+        private final int start;
+        private final int size;
+        private final int blockCount;
+        private final int blocksStart;
+        private final int[] packed;
+
+        public Decoder(ByteBuffer buffer, int start, int size) {
+            this.buffer = buffer;
+            this.start = start;
+            this.size = size;
+            this.blockCount = PostingsCodec.getBlockCount(size);
+            this.blocksStart = start + this.blockCount * SKIP_ENTRY_SIZE;
+            this.packed = new int[MAX_WIDTH * (BLOCK_SIZE / Integer.SIZE)];
+        }
+
+        public int getBlockCount() {
+            return this.blockCount;
+        }
+
+        /**
+         * Returns the id of the last document in the given block.
+         */
+        public int getLastDocId(int block) {
+            return this.buffer.getInt(this.start + block * SKIP_ENTRY_SIZE);
+        }
+
+        /**
+         * Returns the first block from block 'from' onwards whose last document id is at
+         * least 'target', or getBlockCount() if there is none, using only the skip entries.
+         */
+        public int findBlock(int from, int target) {
+            int low = from;
+            int high = this.blockCount;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (this.getLastDocId(middle) < target) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        /**
+         * Decodes the given block into the arrays, starting at the given position of
+         * each, and returns the number of postings in the block.
+         */
+        public int decodeBlock(int block, int[] docIds, int[] frequencies, int offset) {
+            int position = this.blocksStart + this.buffer.getInt(this.start + block * SKIP_ENTRY_SIZE + 4);
+            int count = Math.min(BLOCK_SIZE, this.size - block * BLOCK_SIZE);
+            int previous = block == 0 ? -1 : this.getLastDocId(block - 1);
+
+            if (count == BLOCK_SIZE) {
+                position = this.readPacked(position, docIds, offset);
+                this.readPacked(position, frequencies, offset);
+            } else {
+                for (int i = offset; i < offset + count; i++) {
+                    long gap = readVarint(this.buffer, position);
+                    position += (int) (gap >>> 32);
+                    docIds[i] = (int) gap;
+                    long frequency = readVarint(this.buffer, position);
+                    position += (int) (frequency >>> 32);
+                    frequencies[i] = (int) frequency;
+                }
+            }
+
+            for (int i = offset; i < offset + count; i++) {
+                previous += docIds[i] + 1;
+                docIds[i] = previous;
+                frequencies[i]++;
+            }
+            return count;
+        }
+
+        /**
+         * Unpacks a block of values written by writePacked into the array, and
+         * returns the position just past them.
+         */
+        private int readPacked(int position, int[] values, int offset) {
+            int width = this.buffer.get(position) & 0xFF;
+            int exceptions = this.buffer.get(position + 1) & 0xFF;
+            position += 2;
+
+            int intCount = width * (BLOCK_SIZE / Integer.SIZE);
+            int[] packed = this.packed;
+            for (int i = 0; i < intCount; i++) {
+                packed[i] = this.buffer.getInt(position);
+                position += Integer.BYTES;
+            }
+
+            if (width == 0) {
+                for (int i = offset; i < offset + BLOCK_SIZE; i++) {
+                    values[i] = 0;
+                }
+            } else {
+                long mask = (1L << width) - 1;
+                int bit = 0;
+                for (int i = offset; i < offset + BLOCK_SIZE; i++) {
+                    int word = bit >>> 5;
+                    int shift = bit & 31;
+                    long bits = (packed[word] & 0xFFFFFFFFL) >>> shift;
+                    if (shift + width > Integer.SIZE) {
+                        bits |= (packed[word + 1] & 0xFFFFFFFFL) << (Integer.SIZE - shift);
+                    }
+                    values[i] = (int) (bits & mask);
+                    bit += width;
+                }
+            }
+
+            for (int i = 0; i < exceptions; i++) {
+                int index = this.buffer.get(position) & 0xFF;
+                long high = readVarint(this.buffer, position + 1);
+                position += 1 + (int) (high >>> 32);
+                values[offset + index] |= (int) high << width;
+            }
+            return position;
+        }
+    }
+
+    /**
+     * Writes a full block of non-negative values, packed at the width that takes the
+     * fewest bytes once exceptions are counted.
+     */
+    private static void writePacked(int[] values, DataOutputStream out) throws IOException {
+        // Non-negative ints never need more than 31 bits
+        int bestWidth = MAX_WIDTH;
+        int bestCost = Integer.MAX_VALUE;
+        for (int width = 0; width <= MAX_WIDTH; width++) {
+            int cost = width * (BLOCK_SIZE / Byte.SIZE);
+            for (int value : values) {
+                if ((value >>> width) != 0) {
+                    cost += 1 + getVarintSize(value >>> width);
+                }
+            }
+            if (cost < bestCost) {
+                bestWidth = width;
+                bestCost = cost;
+            }
+        }
+
+        int exceptions = 0;
+        for (int value : values) {
+            if ((value >>> bestWidth) != 0) {
+                exceptions++;
+            }
+        }
+        out.writeByte(bestWidth);
+        out.writeByte(exceptions);
+
+        int[] packed = new int[bestWidth * (BLOCK_SIZE / Integer.SIZE)];
+        if (bestWidth > 0) {
+            long mask = (1L << bestWidth) - 1;
+            int bit = 0;
+            for (int value : values) {
+                long bits = value & mask;
+                int word = bit >>> 5;
+                int shift = bit & 31;
+                packed[word] |= (int) (bits << shift);
+                if (shift + bestWidth > Integer.SIZE) {
+                    packed[word + 1] |= (int) (bits >>> (Integer.SIZE - shift));
+                }
+                bit += bestWidth;
+            }
+        }
+        for (int word : packed) {
+            out.writeInt(word);
+        }
+
+        for (int i = 0; i < BLOCK_SIZE; i++) {
+            if ((values[i] >>> bestWidth) != 0) {
+                out.writeByte(i);
+                writeVarint(values[i] >>> bestWidth, out);
+            }
+        }
+    }
+
+    /**
+     * Writes the given value, treated as unsigned, seven bits at a time, lowest bits
+     * first; every byte but the last has its top bit set.
+     */
+    static void writeVarint(int value, DataOutputStream out) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static int getVarintSize(int value) {
+        int size = 1;
+        while ((value & ~0x7F) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    /**
+     * Reads the varint at the given position, returning its value in the low 32 bits
+     * and the number of bytes it took in the high 32 bits.
+     */
+    static long readVarint(ByteBuffer buffer, int position) {
+        int value = 0;
+        int length = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get(position + length);
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+            length++;
+        } while (b < 0);
+        return ((long) length << 32) | (value & 0xFFFFFFFFL);
+    }
+}
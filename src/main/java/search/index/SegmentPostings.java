@@ -0,0 +1,128 @@
+package search.index;
+
+import search.analyzers.Postings;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+
+/**
+ * A postings list read straight out of an index segment, decoding only the block of
+ * 128 postings holding the position asked for.
+ *
+ * Advancing to a document uses the list's skip entries to find the block that could
+ * hold it, so blocks skipped over by a search are never decoded. The current block is
+ * decoded into buffers reused for every block, which makes reading the list change
+ * its state: each thread must read its own duplicate.
+ */
+final class SegmentPostings extends Postings {
+    private final ByteBuffer buffer;
+    private final int start;
+    private final double idf;
+    private final IntBuffer lengths;
+    private final PostingsCodec.Decoder decoder;
+
+    // The block currently decoded into the buffers, and how many postings it holds
+    private int block;
+    private int blockSize;
+    private final int[] docIds;
+    private final int[] frequencies;
+
+    /**
+     * Reads the postings list of the given size encoded at the given position of the
+     * buffer, for a word with the given IDF score.
+     *
+     * @param lengths  The number of words in every document, used to compute weights.
+     */
+    public SegmentPostings(ByteBuffer buffer, int start, int size, double idf, IntBuffer lengths) {
+        super(size);
+        this.buffer = buffer;
+        this.start = start;
+        this.idf = idf;
+        this.lengths = lengths;
+        this.decoder = new PostingsCodec.Decoder(buffer, start, size);
+        this.block = -1;
+        this.blockSize = 0;
+        this.docIds = new int[PostingsCodec.BLOCK_SIZE];
+        this.frequencies = new int[PostingsCodec.BLOCK_SIZE];
+    }
+
+    @Override
+    public Postings duplicate() {
+        return new SegmentPostings(this.buffer, this.start, this.size(), this.idf, this.lengths);
+    }
+
+    @Override
+    public int getDocId(int index) {
+        return this.docIds[this.load(index)];
+    }
+
+    /**
+     * Returns the TF-IDF weight of the word in the document stored at the given position,
+     * computed from the word's frequency the same way the TfIdfAnalyzer does.
+     */
+    @Override
+    public double getWeight(int index) {
+        int offset = this.load(index);
+        double tf = (double) this.frequencies[offset] / this.lengths.get(this.docIds[offset]);
+        return tf * this.idf;
+    }
+
+    @Override
+    public int getFrequency(int index) {
+        return this.frequencies[this.load(index)];
+    }
+
+    /**
+     * Returns the first position at or after 'from' whose document id is at least
+     * 'target', or this.size() if there is none.
+     *
+     * If the block holding 'from' ends before the target, the skip entries of the
+     * blocks after it are binary searched, and only the block found is decoded.
+     */
+    @Override
+    public int advance(int from, int target) {
+        if (from >= this.size()) {
+            return this.size();
+        }
+        int block = from / PostingsCodec.BLOCK_SIZE;
+        if (this.decoder.getLastDocId(block) < target) {
+            block = this.decoder.findBlock(block + 1, target);
+            if (block == this.decoder.getBlockCount()) {
+                return this.size();
+            }
+            from = block * PostingsCodec.BLOCK_SIZE;
+        }
+
+        // The block ends with a document at or after the target, so the answer is in it
+        this.load(from);
+        int low = from - block * PostingsCodec.BLOCK_SIZE;
+        int high = this.blockSize;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (this.docIds[middle] < target) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return block * PostingsCodec.BLOCK_SIZE + low;
+    }
+
+    /**
+     * Decodes the block holding the given position, unless it is already decoded, and
+     * returns the position's offset within the block.
+     *
+     * @throws IndexOutOfBoundsException if the index < 0 or index >= this.size()
+     */
+    private int load(int index) {
+        if (index < 0 || index >= this.size()) {
+            throw new IndexOutOfBoundsException();
+        }
+        int block = index / PostingsCodec.BLOCK_SIZE;
+        if (block != this.block) {
+            this.blockSize = this.decoder.decodeBlock(block, this.docIds, this.frequencies, 0);
+            this.block = block;
+        }
+        return index - block * PostingsCodec.BLOCK_SIZE;
+    }
+}
@@ -0,0 +1,302 @@
+package search.index;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * An immutable, sorted set of words, front-coded in blocks and read straight out of a
+ * buffer. Each word's id is its position in UTF-8 byte order, so the words sharing a
+ * prefix, or falling in a range, have consecutive ids.
+ *
+ * The dictionary is laid out as (all values are big-endian):
+ *
+ *   int byte position of every block, counting from the end of these positions
+ *   then every block of 16 words, each word stored as
+ *       byte (length of the prefix shared with the word before) << 4 | (length of the rest),
+ *           or 0xF0 followed by both lengths as varints if they do not fit
+ *       the rest of the word's UTF-8 bytes
+ *
+ * The first word of every block shares nothing with the word before it, so a lookup
+ * binary searches the blocks' first words, then scans a single block. Most words only
+ * cost the bytes that differ from their neighbour plus one.
+ */
+public class TermDictionary {
+    private static final int BLOCK_SIZE = 16;
+    private static final int ESCAPE = 0xF0;
+
+    /**
+     * Receives each word found by a prefix or range lookup, in increasing order.
+     */
+    @FunctionalInterface
+    public interface TermConsumer {
+        void accept(int termId, String word);
+    }
+
+    private ByteBuffer buffer;
+    private int termCount;
+    private int blockCount;
+    private int blocksStart;
+
+    /**
+     * Reads the dictionary of the given number of words written by 'write', starting at
+     * the beginning of the buffer.
+     */
+    public TermDictionary(ByteBuffer buffer, int termCount) {
+        this.buffer = buffer;
+        this.termCount = termCount;
+        this.blockCount = (termCount + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        this.blocksStart = this.blockCount * Integer.BYTES;
+    }
+
+    /**
+     * Writes the given words to the output.
+     *
+     * Precondition: the words are UTF-8 encoded, unique and sorted by their bytes,
+     *               compared as unsigned values.
+     */
+    public static void write(byte[][] words, DataOutputStream out) throws IOException {
+        ByteArrayOutputStream blockBytes = new ByteArrayOutputStream();
+        DataOutputStream blocks = new DataOutputStream(blockBytes);
+        for (int i = 0; i < words.length; i++) {
+            int shared = 0;
+            if (i % BLOCK_SIZE == 0) {
+                out.writeInt(blocks.size());
+            } else {
+                shared = sharedPrefixLength(words[i - 1], words[i]);
+            }
+            int rest = words[i].length - shared;
+            if (shared < 15 && rest < 16) {
+                blocks.writeByte((shared << 4) | rest);
+            } else {
+                blocks.writeByte(ESCAPE);
+                PostingsCodec.writeVarint(shared, blocks);
+                PostingsCodec.writeVarint(rest, blocks);
+            }
+            blocks.write(words[i], shared, rest);
+        }
+        blocks.flush();
+        blockBytes.writeTo(out);
+    }
+
+    /**
+     * Returns the number of words in the dictionary.
+     */
+    public int size() {
+        return this.termCount;
+    }
+
+    /**
+     * Returns the id of the given word, or -1 if it is not in the dictionary.
+     */
+    public int find(String word) {
+        byte[] key = word.getBytes(StandardCharsets.UTF_8);
+        int termId = this.findFirstAtLeast(key);
+        if (termId == this.termCount || compareBytes(key, this.getBytes(termId)) != 0) {
+            return -1;
+        }
+        return termId;
+    }
+
+    /**
+     * Returns the word with the given id.
+     *
+     * @throws IndexOutOfBoundsException  if termId < 0 or termId >= this.size()
+     */
+    public String getTerm(int termId) {
+        if (termId < 0 || termId >= this.termCount) {
+            throw new IndexOutOfBoundsException();
+        }
+        return new String(this.getBytes(termId), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Passes every word starting with the given prefix to the consumer.
+     */
+    public void forEachWithPrefix(String prefix, TermConsumer consumer) {
+        byte[] key = prefix.getBytes(StandardCharsets.UTF_8);
+        this.scan(this.findFirstAtLeast(key), key, null, consumer);
+    }
+
+    /**
+     * Passes every word from 'from' (inclusive) to 'to' (exclusive) to the consumer,
+     * comparing words by their UTF-8 bytes.
+     */
+    public void forEachInRange(String from, String to, TermConsumer consumer) {
+        byte[] start = from.getBytes(StandardCharsets.UTF_8);
+        this.scan(this.findFirstAtLeast(start), null, to.getBytes(StandardCharsets.UTF_8), consumer);
+    }
+
+    /**
+     * Walks the words from the given id onwards, stopping at the first that does not
+     * start with 'prefix' or is not below 'end' (either may be null).
+     */
+    private void scan(int termId, byte[] prefix, byte[] end, TermConsumer consumer) {
+        if (termId == this.termCount) {
+            return;
+        }
+        Cursor cursor = this.seek(termId);
+        while (true) {
+            if (prefix != null && !cursor.startsWith(prefix)) {
+                return;
+            }
+            if (end != null && compareBytes(cursor.word, cursor.length, end, end.length) >= 0) {
+                return;
+            }
+            consumer.accept(termId, new String(cursor.word, 0, cursor.length, StandardCharsets.UTF_8));
+            termId++;
+            if (termId == this.termCount) {
+                return;
+            }
+            if (termId % BLOCK_SIZE == 0) {
+                cursor = new Cursor(termId / BLOCK_SIZE);
+            }
+            cursor.next();
+        }
+    }
+
+    /**
+     * Returns the id of the first word not below the given key, or this.size() if
+     * every word is below it.
+     */
+    private int findFirstAtLeast(byte[] key) {
+        if (this.termCount == 0) {
+            return 0;
+        }
+
+        // Find the last block whose first word is not above the key
+        int low = 0;
+        int high = this.blockCount - 1;
+        int block = 0;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            Cursor cursor = new Cursor(middle);
+            cursor.next();
+            if (compareBytes(cursor.word, cursor.length, key, key.length) <= 0) {
+                block = middle;
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+
+        Cursor cursor = new Cursor(block);
+        int termId = block * BLOCK_SIZE;
+        int blockEnd = Math.min(termId + BLOCK_SIZE, this.termCount);
+        while (termId < blockEnd) {
+            cursor.next();
+            if (compareBytes(cursor.word, cursor.length, key, key.length) >= 0) {
+                return termId;
+            }
+            termId++;
+        }
+        return termId;
+    }
+
+    private byte[] getBytes(int termId) {
+        Cursor cursor = this.seek(termId);
+        byte[] word = new byte[cursor.length];
+        System.arraycopy(cursor.word, 0, word, 0, cursor.length);
+        return word;
+    }
+
+    /**
+     * Returns a cursor holding the word with the given id.
+     */
+    private Cursor seek(int termId) {
+        Cursor cursor = new Cursor(termId / BLOCK_SIZE);
+        for (int i = termId % BLOCK_SIZE; i >= 0; i--) {
+            cursor.next();
+        }
+        return cursor;
+    }
+
+    /**
+     * Decodes the words of a block one at a time, rebuilding each in the same array.
+     */
+    private class Cursor {
+        public byte[] word;
+        public int length;
+        private int position;
+
+        public Cursor(int block) {
+            this.word = new byte[32];
+            this.length = 0;
+            this.position = TermDictionary.this.blocksStart
+                    + TermDictionary.this.buffer.getInt(block * Integer.BYTES);
+        }
+
+        public void next() {
+            ByteBuffer buffer = TermDictionary.this.buffer;
+            int header = buffer.get(this.position) & 0xFF;
+            this.position++;
+            int shared;
+            int rest;
+            if (header == ESCAPE) {
+                long value = PostingsCodec.readVarint(buffer, this.position);
+                this.position += (int) (value >>> 32);
+                shared = (int) value;
+                value = PostingsCodec.readVarint(buffer, this.position);
+                this.position += (int) (value >>> 32);
+                rest = (int) value;
+            } else {
+                shared = header >>> 4;
+                rest = header & 0x0F;
+            }
+
+            if (this.word.length < shared + rest) {
+                byte[] word = new byte[Math.max(this.word.length * 2, shared + rest)];
+                System.arraycopy(this.word, 0, word, 0, shared);
+                this.word = word;
+            }
+            for (int i = 0; i < rest; i++) {
+                this.word[shared + i] = buffer.get(this.position + i);
+            }
+            this.position += rest;
+            this.length = shared + rest;
+        }
+
+        public boolean startsWith(byte[] prefix) {
+            if (this.length < prefix.length) {
+                return false;
+            }
+            for (int i = 0; i < prefix.length; i++) {
+                if (this.word[i] != prefix[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Compares two words by their UTF-8 bytes, taken as unsigned, which is the order
+     * the words of a dictionary are stored in.
+     */
+    static int compareBytes(byte[] a, byte[] b) {
+        return compareBytes(a, a.length, b, b.length);
+    }
+
+    private static int compareBytes(byte[] a, int aLength, byte[] b, int bLength) {
+        int shared = Math.min(aLength, bLength);
+        for (int i = 0; i < shared; i++) {
+            int difference = (a[i] & 0xFF) - (b[i] & 0xFF);
+            if (difference != 0) {
+                return difference;
+            }
+        }
+        return aLength - bLength;
+    }
+
+    private static int sharedPrefixLength(byte[] a, byte[] b) {
+        int shared = Math.min(a.length, b.length);
+        for (int i = 0; i < shared; i++) {
+            if (a[i] != b[i]) {
+                return i;
+            }
+        }
+        return shared;
+    }
+}
@@ -1,7 +1,7 @@
 package search.misc;
 
 import datastructures.concrete.ChainedHashSet;
-import datastructures.concrete.DoubleLinkedList;
+import datastructures.concrete.ArrayList;
 import datastructures.interfaces.IList;
 import datastructures.interfaces.ISet;
 
@@ -40,7 +40,7 @@ public class Bridge {
     public static class IListCollector<T> implements Collector<T, IList<T>, IList<T>> {
         @Override
         public Supplier<IList<T>> supplier() {
-            return DoubleLinkedList::new;
+            return ArrayList::new;
         }
 
         @Override
@@ -50,15 +50,13 @@ public class Bridge {
 
         @Override
         public BinaryOperator<IList<T>> combiner() {
+            // Both lists are private to the stream, so we can append onto the first
+            // rather than copying both into a fresh list
             return (a, b) -> {
-                IList<T> out = new DoubleLinkedList<>();
-                for (T i : a) {
-                    out.add(i);
-                }
                 for (T i : b) {
-                    out.add(i);
+                    a.add(i);
                 }
-                return out;
+                return a;
             };
         }
 
@@ -86,15 +84,15 @@ public class Bridge {
 
         @Override
         public BinaryOperator<ISet<T>> combiner() {
+            // Both sets are private to the stream, so we only need to add the
+            // smaller set's items into the larger one
             return (a, b) -> {
-                ISet<T> out = new ChainedHashSet<>();
-                for (T i : a) {
-                    out.add(i);
-                }
-                for (T i : b) {
-                    out.add(i);
+                ISet<T> larger = a.size() >= b.size() ? a : b;
+                ISet<T> smaller = larger == a ? b : a;
+                for (T i : smaller) {
+                    larger.add(i);
                 }
-                return out;
+                return larger;
             };
         }
 
@@ -105,7 +103,7 @@ public class Bridge {
 
         @Override
         public Set<Characteristics> characteristics() {
-            return EnumSet.of(Characteristics.IDENTITY_FINISH);
+            return EnumSet.of(Characteristics.IDENTITY_FINISH, Characteristics.UNORDERED);
         }
     }
 }
@@ -0,0 +1,161 @@
+package search.misc;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes JSON text to a Writer as it goes, without building up a tree of values first.
+ *
+ * Commas and colons are added automatically; the caller only has to open and close
+ * objects and arrays in the right order, and name every value inside an object:
+ *
+ *   json.beginObject().name("score").value(0.5).endObject();
+ *
+ * Mismatched calls are not detected and produce invalid JSON.
+ */
+public class JsonWriter {
+    private Writer out;
+
+    // Whether the object or array at each nesting depth has had a value written to it
+    private boolean[] hasValues;
+    private int depth;
+    private boolean afterName;
+
+    public JsonWriter(Writer out) {
+        this.out = out;
+        this.hasValues = new boolean[8];
+        this.depth = 0;
+        this.afterName = false;
+    }
+
+    public JsonWriter beginObject() throws IOException {
+        return this.open('{');
+    }
+
+    public JsonWriter endObject() throws IOException {
+        return this.close('}');
+    }
+
+    public JsonWriter beginArray() throws IOException {
+        return this.open('[');
+    }
+
+    public JsonWriter endArray() throws IOException {
+        return this.close(']');
+    }
+
+    /**
+     * Writes the name of the next value in the current object.
+     */
+    public JsonWriter name(String name) throws IOException {
+        this.beforeValue();
+        this.writeString(name);
+        this.out.write(':');
+        this.afterName = true;
+        return this;
+    }
+
+    /**
+     * Writes a string, or null if it is null.
+     */
+    public JsonWriter value(String value) throws IOException {
+        this.beforeValue();
+        if (value == null) {
+            this.out.write("null");
+        } else {
+            this.writeString(value);
+        }
+        return this;
+    }
+
+    /**
+     * Writes a number. JSON cannot represent NaN or the infinities, so they are
+     * written as null.
+     */
+    public JsonWriter value(double value) throws IOException {
+        this.beforeValue();
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            this.out.write("null");
+        } else {
+            this.out.write(Double.toString(value));
+        }
+        return this;
+    }
+
+    public JsonWriter value(long value) throws IOException {
+        this.beforeValue();
+        this.out.write(Long.toString(value));
+        return this;
+    }
+
+    public void flush() throws IOException {
+        this.out.flush();
+    }
+
+    private JsonWriter open(char bracket) throws IOException {
+        this.beforeValue();
+        this.out.write(bracket);
+        if (this.depth == this.hasValues.length) {
+            boolean[] newHasValues = new boolean[this.hasValues.length * 2];
+            System.arraycopy(this.hasValues, 0, newHasValues, 0, this.depth);
+            this.hasValues = newHasValues;
+        }
+        this.hasValues[this.depth] = false;
+        this.depth++;
+        return this;
+    }
+
+    private JsonWriter close(char bracket) throws IOException {
+        this.depth--;
+        this.out.write(bracket);
+        return this;
+    }
+
+    /**
+     * Writes the comma separating this value from the previous one, if needed.
+     */
+    private void beforeValue() throws IOException {
+        if (this.afterName) {
+            // The comma came before the name
+            this.afterName = false;
+            return;
+        }
+        if (this.depth > 0) {
+            if (this.hasValues[this.depth - 1]) {
+                this.out.write(',');
+            }
+            this.hasValues[this.depth - 1] = true;
+        }
+    }
+
+    private void writeString(String value) throws IOException {
+        this.out.write('"');
+        int start = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            String escaped;
+            if (c == '"') {
+                escaped = "\\\"";
+            } else if (c == '\\') {
+                escaped = "\\\\";
+            } else if (c == '\n') {
+                escaped = "\\n";
+            } else if (c == '\r') {
+                escaped = "\\r";
+            } else if (c == '\t') {
+                escaped = "\\t";
+            } else if (c < 0x20 || c == '\u2028' || c == '\u2029') {
+                // Other control characters must be escaped; the line and paragraph
+                // separators are too, so the output is also valid JavaScript
+                escaped = String.format("\\u%04x", (int) c);
+            } else {
+                continue;
+            }
+            this.out.write(value, start, i - start);
+            this.out.write(escaped);
+            start = i + 1;
+        }
+        this.out.write(value, start, value.length() - start);
+        this.out.write('"');
+    }
+}
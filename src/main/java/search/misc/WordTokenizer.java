@@ -1,17 +1,110 @@
 package search.misc;
 
-import datastructures.concrete.DoubleLinkedList;
+import datastructures.concrete.ArrayList;
 import datastructures.interfaces.IList;
 
+import java.util.Locale;
+
+/**
+ * Splits text into lowercase words.
+ *
+ * Words are separated by whitespace (space, tab, newline, vertical tab, form feed and
+ * carriage return), lowercased using the default locale, and stripped of ASCII
+ * punctuation. Words left empty are skipped.
+ *
+ * The text is scanned a character at a time, so words made up of ASCII characters
+ * are built without regular expressions or intermediate strings.
+ */
 public class WordTokenizer {
+    /**
+     * Receives each word found by the tokenizer. The buffer is reused for every word,
+     * so it must not be held onto after accept returns.
+     */
+    @FunctionalInterface
+    public interface TokenConsumer {
+        void accept(char[] buffer, int length);
+    }
+
     public static IList<String> extract(String input) {
-        IList<String> out = new DoubleLinkedList<>();
-        for (String word : input.toLowerCase().split("\\s+")) {
-            word = word.replaceAll("\\p{Punct}", "");
-            if (!word.isEmpty()) {
-                out.add(word);
+        IList<String> out = new ArrayList<>();
+        tokenize(input, (buffer, length) -> out.add(new String(buffer, 0, length)));
+        return out;
+    }
+
+    /**
+     * Passes every word in the input to the consumer, in order.
+     */
+    public static void tokenize(String input, TokenConsumer consumer) {
+        // These locales lowercase 'I' to something other than 'i'
+        String language = Locale.getDefault().getLanguage();
+        boolean asciiLowercase = !language.equals("tr") && !language.equals("az");
+
+        char[] buffer = new char[16];
+        int length = input.length();
+        int start = 0;
+        while (start < length) {
+            while (start < length && isWhitespace(input.charAt(start))) {
+                start++;
+            }
+            int end = start;
+            boolean ascii = asciiLowercase;
+            while (end < length && !isWhitespace(input.charAt(end))) {
+                ascii &= input.charAt(end) < 0x80;
+                end++;
             }
+            if (start == end) {
+                break;
+            }
+
+            if (buffer.length < end - start) {
+                buffer = new char[Math.max(buffer.length * 2, end - start)];
+            }
+            int size;
+            if (ascii) {
+                size = 0;
+                for (int i = start; i < end; i++) {
+                    char c = input.charAt(i);
+                    if (!isPunctuation(c)) {
+                        buffer[size] = c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+                        size++;
+                    }
+                }
+            } else {
+                // Lowercasing may change the length of a word, or depend on the
+                // letters around it, so leave anything unusual to String
+                String word = input.substring(start, end).toLowerCase();
+                if (buffer.length < word.length()) {
+                    buffer = new char[word.length()];
+                }
+                size = 0;
+                for (int i = 0; i < word.length(); i++) {
+                    char c = word.charAt(i);
+                    if (!isPunctuation(c)) {
+                        buffer[size] = c;
+                        size++;
+                    }
+                }
+            }
+
+            if (size > 0) {
+                consumer.accept(buffer, size);
+            }
+            start = end;
         }
-        return out;
+    }
+
+    /**
+     * Returns 'true' if the character matches the regex '\s'.
+     */
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || (c >= '\t' && c <= '\r');
+    }
+
+    /**
+     * Returns 'true' if the character matches the regex '\p{Punct}'.
+     */
+    private static boolean isPunctuation(char c) {
+        return (c >= '!' && c <= '/') || (c >= ':' && c <= '@')
+                || (c >= '[' && c <= '`') || (c >= '{' && c <= '~');
     }
 }
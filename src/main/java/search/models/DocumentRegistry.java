@@ -0,0 +1,102 @@
+package search.models;
+
+import datastructures.concrete.dictionaries.ChainedHashDictionary;
+import datastructures.interfaces.IDictionary;
+import datastructures.interfaces.ISet;
+import misc.exceptions.NoSuchKeyException;
+
+import java.net.URI;
+
+/**
+ * Assigns every webpage in the corpus a dense integer id, from 0 up to (but not
+ * including) size().
+ *
+ * The analyzers and the search engine store their per-document data in arrays
+ * indexed by this id, so URIs only need to be hashed when translating to and
+ * from the outside world.
+ */
+public class DocumentRegistry {
+    private IDictionary<URI, Integer> ids;
+    private URI[] uris;
+    private WebpageSummary[] summaries;
+
+    /**
+     * Registers every given webpage. Ids are handed out in iteration order.
+     */
+    public DocumentRegistry(ISet<Webpage> webpages) {
+        this(extractSummaries(webpages));
+    }
+
+    /**
+     * Registers every given summary, using its position in the array as its id.
+     */
+    public DocumentRegistry(WebpageSummary[] summaries) {
+        this.ids = new ChainedHashDictionary<>();
+        this.uris = new URI[summaries.length];
+        this.summaries = summaries;
+
+        for (int docId = 0; docId < summaries.length; docId++) {
+            this.ids.put(summaries[docId].getUri(), docId);
+            this.uris[docId] = summaries[docId].getUri();
+        }
+    }
+
+    private static WebpageSummary[] extractSummaries(ISet<Webpage> webpages) {
+        WebpageSummary[] summaries = new WebpageSummary[webpages.size()];
+        int docId = 0;
+        for (Webpage page : webpages) {
+            summaries[docId] = page.getSummary();
+            docId++;
+        }
+        return summaries;
+    }
+
+    /**
+     * Returns the number of registered documents.
+     */
+    public int size() {
+        return this.uris.length;
+    }
+
+    /**
+     * Returns 'true' if the given URI belongs to a registered document.
+     */
+    public boolean contains(URI uri) {
+        return this.ids.containsKey(uri);
+    }
+
+    /**
+     * Returns the id of the document with the given URI.
+     *
+     * @throws NoSuchKeyException if no document has the given URI
+     */
+    public int getId(URI uri) {
+        return this.ids.get(uri);
+    }
+
+    /**
+     * Returns the id of the document with the given URI, or -1 if no document has
+     * the given URI.
+     */
+    public int indexOf(URI uri) {
+        return this.ids.getOrDefault(uri, -1);
+    }
+
+    /**
+     * Returns the URI of the document with the given id.
+     *
+     * @throws IndexOutOfBoundsException if the id < 0 or id >= this.size()
+     */
+    public URI getUri(int docId) {
+        return this.uris[docId];
+    }
+
+    /**
+     * Returns the summary of the document with the given id.
+     *
+     * @throws IndexOutOfBoundsException if the id < 0 or id >= this.size()
+     */
+    public WebpageSummary getSummary(int docId) {
+        return this.summaries[docId];
+    }
+}
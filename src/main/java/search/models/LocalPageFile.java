@@ -0,0 +1,118 @@
+package search.models;
+
+import datastructures.concrete.dictionaries.ChainedHashDictionary;
+import datastructures.interfaces.IDictionary;
+import search.misc.exceptions.DataExtractionException;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+/**
+ * A downloaded webpage, split into the metadata header our scraper writes at the top
+ * of the file and the HTML that follows it:
+ *
+ *   <!-- METADATA
+ *   key: value
+ *   ...
+ *   -->
+ *   <html>...
+ *
+ * The whole file is read with a single call and the header is split straight out of
+ * the bytes, so the HTML can be handed to Jsoup without copying it.
+ */
+class LocalPageFile {
+    private static final String HEADER_START = "<!-- METADATA";
+    private static final String HEADER_END = "-->";
+
+    private IDictionary<String, String> metadata;
+    private byte[] bytes;
+    private int bodyStart;
+
+    private LocalPageFile(IDictionary<String, String> metadata, byte[] bytes, int bodyStart) {
+        this.metadata = metadata;
+        this.bytes = bytes;
+        this.bodyStart = bodyStart;
+    }
+
+    /**
+     * Reads the local file at the given URI.
+     *
+     * @throws DataExtractionException  if the file does not start with a complete metadata header
+     */
+    public static LocalPageFile read(URI localUri) throws IOException {
+        byte[] bytes = Files.readAllBytes(Paths.get(localUri));
+
+        int position = 0;
+        int end = findLineEnd(bytes, position);
+        if (!decode(bytes, position, end).equals(HEADER_START)) {
+            throw new DataExtractionException("Local webpage does not start with metadata header");
+        }
+
+        IDictionary<String, String> metadata = new ChainedHashDictionary<>();
+        while (true) {
+            position = skipLineBreak(bytes, end);
+            if (position == bytes.length) {
+                throw new DataExtractionException("Local webpage metadata header is not terminated");
+            }
+            end = findLineEnd(bytes, position);
+            String line = decode(bytes, position, end);
+            if (line.equals(HEADER_END)) {
+                break;
+            }
+
+            int separator = line.indexOf(": ");
+            if (separator == -1) {
+                throw new DataExtractionException("Malformed metadata line: " + line);
+            }
+            metadata.put(line.substring(0, separator), line.substring(separator + 2));
+        }
+        return new LocalPageFile(metadata, bytes, skipLineBreak(bytes, end));
+    }
+
+    public IDictionary<String, String> getMetadata() {
+        return this.metadata;
+    }
+
+    /**
+     * Returns a stream over the bytes following the metadata header.
+     */
+    public InputStream openBody() {
+        return new ByteArrayInputStream(this.bytes, this.bodyStart, this.bytes.length - this.bodyStart);
+    }
+
+    /**
+     * Returns the position of the '\r' or '\n' ending the line starting at the given
+     * position, or the end of the file if the line is not terminated.
+     */
+    private static int findLineEnd(byte[] bytes, int position) {
+        while (position < bytes.length && bytes[position] != '\r' && bytes[position] != '\n') {
+            position++;
+        }
+        return position;
+    }
+
+    /**
+     * Returns the start of the line following the line break at the given position,
+     * treating "\r\n" as a single line break.
+     */
+    private static int skipLineBreak(byte[] bytes, int position) {
+        if (position < bytes.length && bytes[position] == '\r') {
+            position++;
+            if (position < bytes.length && bytes[position] == '\n') {
+                position++;
+            }
+        } else if (position < bytes.length) {
+            position++;
+        }
+        return position;
+    }
+
+    private static String decode(byte[] bytes, int start, int end) {
+        return new String(bytes, start, end - start, StandardCharsets.UTF_8);
+    }
+}
@@ -2,11 +2,8 @@ package search.models;
 
 import com.chimbori.crux.articles.Article;
 import com.chimbori.crux.articles.ArticleExtractor;
-import datastructures.concrete.DoubleLinkedList;
-import datastructures.concrete.dictionaries.ChainedHashDictionary;
 import datastructures.interfaces.IDictionary;
 import datastructures.interfaces.IList;
-import search.misc.UnbufferedReader;
 import search.misc.exceptions.DataExtractionException;
 import search.misc.WebUtils;
 import org.jsoup.Jsoup;
@@ -16,7 +13,6 @@ import search.misc.WordTokenizer;
 import java.io.*;
 import java.net.URI;
 import java.net.URISyntaxException;
-import java.util.StringTokenizer;
 
 /**
  * This class represents a single webpage.
@@ -97,18 +93,22 @@ public class Webpage {
         URI cacheURI = Webpage.getCacheURI(localUri);
         File cacheFile = new File(cacheURI);
         if (cacheFile.exists()) {
-            return Webpage.loadFromCache(cacheFile);
-        } else {
-            Webpage out = Webpage.loadOriginal(localUri);
-            Webpage.saveToCache(out, cacheFile);
-            return out;
+            try {
+                return Webpage.loadFromCache(cacheFile);
+            } catch (DataExtractionException ex) {
+                // The cache is stale or damaged: rebuild it from the original page
+            }
         }
+        Webpage out = Webpage.loadOriginal(localUri);
+        Webpage.saveToCache(out, cacheFile);
+        return out;
     }
 
     public static Webpage loadOriginal(URI localUri) {
         // Extract some core data
-        try (PushbackInputStream stream = Webpage.openLocalStream(localUri)) {
-            IDictionary<String, String> metadata = Webpage.extractMetadata(stream);
+        LocalPageFile file = Webpage.readLocalFile(localUri);
+        try (InputStream stream = file.openBody()) {
+            IDictionary<String, String> metadata = file.getMetadata();
             Document document = Webpage.extractHtml(stream, metadata);
 
             // Save canonical fields
@@ -118,6 +118,8 @@ public class Webpage {
             IList<URI> links = WebUtils.extractLinks(pageUri, document);
             IList<String> words = WordTokenizer.extract(document.body().text());
 
+            // The article extractor prunes the document it is given, so this must
+            // come after everything else we read from it
             Article article = Webpage.extractReadableArticle(pageUri, document);
             String title = Webpage.extractTitle(article, pageUri);
             String blurb = Webpage.extractBlurb(article);
@@ -129,60 +131,16 @@ public class Webpage {
     }
 
     private static void saveToCache(Webpage page, File cache) {
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(cache))) {
-            WebpageSummary summary = page.getSummary();
-
-            // Line 1: page URI
-            writer.write(page.pageUri.toString() + "\n");
-
-            // Line 2: title
-            writer.write(summary.getTitle() + "\n");
-
-            // Line 3: blurb
-            writer.write(summary.getBlurb() + "\n");
-
-            // Line 4: words
-            for (String word : page.words) {
-                writer.write(word);
-                writer.write(' ');
-            }
-            writer.write('\n');
-
-            // Remaining lines: links
-            for (URI link : page.links) {
-                writer.write(link.toString());
-                writer.write('\n');
-            }
+        try {
+            WebpageCache.write(page, cache);
         } catch (IOException ex) {
             throw new RuntimeException("Could not create cache", ex);
         }
     }
 
     private static Webpage loadFromCache(File cache) {
-        try (BufferedReader reader = new BufferedReader(new FileReader(cache))) {
-            // Line 1: Page URI
-            URI pageUri = URI.create(reader.readLine().trim());
-
-            // Line 2: title
-            String title = reader.readLine().trim();
-
-            // Line 3: blurb
-            String blurb = reader.readLine().trim();
-
-            // Line 4: words
-            IList<String> words = new DoubleLinkedList<>();
-            StringTokenizer tokenizer = new StringTokenizer(reader.readLine().trim(), " ");
-            while (tokenizer.hasMoreTokens()) {
-                words.add(tokenizer.nextToken());
-            }
-
-            // Rest of lines: links
-            IList<URI> links = new DoubleLinkedList<>();
-            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
-                links.add(URI.create(line));
-            }
-
-            return new Webpage(pageUri, links, words, title, blurb);
+        try {
+            return WebpageCache.read(cache);
         } catch (IOException ex) {
             throw new RuntimeException("Could not load cache", ex);
         }
@@ -194,38 +152,15 @@ public class Webpage {
         return URI.create(piece + ".cache");
     }
 
-    private static PushbackInputStream openLocalStream(URI localUri) {
+    private static LocalPageFile readLocalFile(URI localUri) {
         try {
-            return new PushbackInputStream(localUri.toURL().openStream());
+            return LocalPageFile.read(localUri);
         } catch (IOException ex) {
             String msg = String.format("Could not open local file file '%s'", localUri);
             throw new DataExtractionException(msg, ex);
         }
     }
 
-    private static IDictionary<String, String> extractMetadata(PushbackInputStream stream) {
-        try {
-            UnbufferedReader reader = new UnbufferedReader(stream);
-            String line = reader.readLine();
-            if (!line.equals("<!-- METADATA")) {
-                throw new DataExtractionException("Local webpage does not start with metadata header");
-            }
-
-            IDictionary<String, String> output = new ChainedHashDictionary<>();
-            while (!line.equals("-->")) {
-                line = reader.readLine();
-
-                if (!line.equals("-->")) {
-                    String[] parts = line.split(": ", 2);
-                    output.put(parts[0], parts[1]);
-                }
-            }
-            return output;
-        } catch (IOException ex) {
-            throw new DataExtractionException("Error when trying to extract metadata", ex);
-        }
-    }
-
     private static Document extractHtml(InputStream stream, IDictionary<String, String> metadata) {
         try {
             return Jsoup.parse(stream, null, metadata.get("uri"));
@@ -235,8 +170,9 @@ public class Webpage {
     }
 
     private static Article extractReadableArticle(URI pageUri, Document document) {
+        // Hand over the parsed document rather than its HTML, so it isn't parsed twice
         return ArticleExtractor
-                .with(pageUri.toString(), document.html())
+                .with(pageUri.toString(), document)
                 .extractMetadata()
                 .extractContent()
                 .article();
@@ -262,21 +198,46 @@ public class Webpage {
     private static String extractBlurb(Article article) {
         String description = article.description;
         if (description == null || description.isEmpty()) {
-            String text = article.document.text();
-            StringBuilder out = new StringBuilder();
-            int count = 0;
-            for (String word : text.split("\\s+")) {
-                out.append(word);
-                count += word.length() + 1;
-                if (count > MAX_DESCRIPTION_LEN) {
-                    out.append("...");
-                    break;
-                } else {
-                    out.append(" ");
-                }
-            }
-            description = out.toString();
+            description = Webpage.summarize(article.document.text());
         }
         return description;
     }
+
+    /**
+     * Returns the words at the start of the given text, each followed by a space,
+     * stopping with "..." at the first word that takes it past MAX_DESCRIPTION_LEN.
+     */
+    private static String summarize(String text) {
+        StringBuilder out = new StringBuilder();
+        int count = 0;
+        int start = 0;
+        int length = text.length();
+        do {
+            int end = start;
+            while (end < length && !isWhitespace(text.charAt(end))) {
+                end++;
+            }
+            out.append(text, start, end);
+            count += end - start + 1;
+            if (count > MAX_DESCRIPTION_LEN) {
+                out.append("...");
+                break;
+            } else {
+                out.append(" ");
+            }
+
+            start = end;
+            while (start < length && isWhitespace(text.charAt(start))) {
+                start++;
+            }
+        } while (start < length);
+        return out.toString();
+    }
+
+    /**
+     * Returns 'true' if the character matches the regex '\s'.
+     */
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || (c >= '\t' && c <= '\r');
+    }
 }
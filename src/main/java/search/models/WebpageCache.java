@@ -0,0 +1,201 @@
+package search.models;
+
+import datastructures.concrete.ArrayList;
+import datastructures.concrete.dictionaries.ChainedHashDictionary;
+import datastructures.interfaces.IDictionary;
+import datastructures.interfaces.IList;
+import search.misc.exceptions.DataExtractionException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.zip.CRC32;
+
+/**
+ * Reads and writes the binary '.cache' files we keep next to each downloaded webpage,
+ * so we don't need to re-parse the original HTML every time we start up.
+ *
+ * Layout (all fixed-width integers are big-endian, all counts and lengths are varints):
+ *
+ *   int    magic number ("NDLC")
+ *   int    format version
+ *   int    payload length in bytes
+ *   int    CRC32 of the payload
+ *   payload:
+ *     string   page URI
+ *     string   title
+ *     string   blurb
+ *     varint   number of unique words, followed by each word as a string
+ *     varint   number of words, followed by the index of each word in the table above
+ *     varint   number of unique links, followed by each link as a string
+ *     varint   number of links, followed by the index of each link in the table above
+ *
+ * Strings are stored as a varint byte length followed by UTF-8 bytes.
+ */
+class WebpageCache {
+    private static final int MAGIC = 0x4E444C43;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+
+    /**
+     * Writes the given webpage to the given cache file, replacing it if it exists.
+     *
+     * The file is written under a temporary name first so readers never see a
+     * partially written cache.
+     */
+    public static void write(Webpage page, File cache) throws IOException {
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        WebpageSummary summary = page.getSummary();
+        writeString(payload, page.getUri().toString());
+        writeString(payload, summary.getTitle());
+        writeString(payload, summary.getBlurb());
+        writeTable(payload, page.getWords());
+
+        IList<String> links = new ArrayList<>(page.getLinks().size());
+        for (URI link : page.getLinks()) {
+            links.add(link.toString());
+        }
+        writeTable(payload, links);
+
+        CRC32 checksum = new CRC32();
+        checksum.update(payload.toByteArray(), 0, payload.size());
+
+        Path target = cache.toPath();
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(temp))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(payload.size());
+            out.writeInt((int) checksum.getValue());
+            payload.writeTo(out);
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads a webpage back out of the given cache file.
+     *
+     * @throws DataExtractionException  if the file is not a cache in the current format,
+     *                                  or if it is truncated or corrupted
+     */
+    public static Webpage read(File cache) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(cache.toPath()));
+        if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+            throw new DataExtractionException("Cache file is not in the current format: " + cache);
+        }
+
+        int length = buffer.getInt();
+        int expectedChecksum = buffer.getInt();
+        if (length != buffer.remaining()) {
+            throw new DataExtractionException("Cache file has the wrong length: " + cache);
+        }
+        CRC32 checksum = new CRC32();
+        checksum.update(buffer.array(), HEADER_SIZE, length);
+        if ((int) checksum.getValue() != expectedChecksum) {
+            throw new DataExtractionException("Cache file is corrupted: " + cache);
+        }
+
+        try {
+            URI pageUri = URI.create(readString(buffer));
+            String title = readString(buffer);
+            String blurb = readString(buffer);
+            IList<String> words = readTable(buffer);
+
+            IList<String> rawLinks = readTable(buffer);
+            IList<URI> links = new ArrayList<>(rawLinks.size());
+            for (String link : rawLinks) {
+                links.add(URI.create(link));
+            }
+            return new Webpage(pageUri, links, words, title, blurb);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException ex) {
+            throw new DataExtractionException("Cache file is malformed: " + cache, ex);
+        }
+    }
+
+    /**
+     * Writes the unique values of the list, followed by the list itself as indices
+     * into those unique values.
+     */
+    private static void writeTable(OutputStream out, IList<String> values) throws IOException {
+        IDictionary<String, Integer> indices = new ChainedHashDictionary<>();
+        IList<String> unique = new ArrayList<>();
+        for (String value : values) {
+            if (!indices.containsKey(value)) {
+                indices.put(value, unique.size());
+                unique.add(value);
+            }
+        }
+
+        writeVarInt(out, unique.size());
+        for (String value : unique) {
+            writeString(out, value);
+        }
+        writeVarInt(out, values.size());
+        for (String value : values) {
+            writeVarInt(out, indices.get(value));
+        }
+    }
+
+    /**
+     * Reads a list written by writeTable. Repeated values share a single String instance.
+     */
+    private static IList<String> readTable(ByteBuffer buffer) {
+        String[] unique = new String[readVarInt(buffer)];
+        for (int i = 0; i < unique.length; i++) {
+            unique[i] = readString(buffer);
+        }
+        int count = readVarInt(buffer);
+        // Every index takes at least one byte, so a corrupt count cannot make us over-allocate
+        IList<String> values = new ArrayList<>(Math.min(count, buffer.remaining()));
+        for (int i = 0; i < count; i++) {
+            values.add(unique[readVarInt(buffer)]);
+        }
+        return values;
+    }
+
+    private static void writeString(OutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(out, bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = readVarInt(buffer);
+        String value = new String(buffer.array(), buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+
+    /**
+     * Writes a non-negative int using 7 bits per byte; the high bit marks that
+     * another byte follows.
+     */
+    private static void writeVarInt(OutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static int readVarInt(ByteBuffer buffer) {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new DataExtractionException("Malformed varint in cache file");
+    }
+}
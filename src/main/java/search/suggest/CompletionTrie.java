@@ -0,0 +1,221 @@
+package search.suggest;
+
+import java.util.Arrays;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * Completes prefixes typed by users with the highest weighted keys starting with them,
+ * such as words weighted by how many documents contain them, or past queries weighted
+ * by how often they were searched for.
+ *
+ * Every node of the trie keeps its own list of the k highest weighted keys below it,
+ * so completing a prefix only walks down the prefix's characters and copies out that
+ * list, no matter how many keys share the prefix. Weights only ever grow, so adding to
+ * a key's weight can only move that key up the lists of the nodes on its path.
+ *
+ * Ties are broken in favour of the alphabetically first key. This class is thread-safe.
+ */
+public class CompletionTrie {
+    private static final char[] NO_LABELS = new char[0];
+    private static final Node[] NO_CHILDREN = new Node[0];
+
+    private final int k;
+    private final Node root;
+    private int size;
+
+    /**
+     * @param k  The number of completions kept for every prefix.
+     *
+     * @throws IllegalArgumentException  if k < 1
+     */
+    public CompletionTrie(int k) {
+        if (k < 1) {
+            throw new IllegalArgumentException("k must be positive");
+        }
+        this.k = k;
+        this.root = new Node();
+        this.size = 0;
+    }
+
+    /**
+     * Returns the number of keys in the trie.
+     */
+    public synchronized int size() {
+        return this.size;
+    }
+
+    /**
+     * Returns the weight of the given key, or 0 if it is not in the trie.
+     */
+    public synchronized long getWeight(String key) {
+        Node node = this.find(key);
+        return node == null || node.key == null ? 0 : node.weight;
+    }
+
+    /**
+     * Adds the given amount to the key's weight, adding the key if it is not in the trie.
+     *
+     * @throws IllegalArgumentException  if amount <= 0
+     */
+    public synchronized void add(String key, long amount) {
+        if (amount <= 0) {
+            throw new IllegalArgumentException("amount must be positive");
+        }
+        this.addUnchecked(key, amount);
+    }
+
+    /**
+     * Adds the given amount to the key's weight like add, except that a key not already
+     * in the trie is only added if the trie holds fewer than maxSize keys. Returns 'true'
+     * if the weight was added.
+     *
+     * @throws IllegalArgumentException  if amount <= 0
+     */
+    public synchronized boolean add(String key, long amount, int maxSize) {
+        if (amount <= 0) {
+            throw new IllegalArgumentException("amount must be positive");
+        }
+        if (this.size >= maxSize) {
+            Node node = this.find(key);
+            if (node == null || node.key == null) {
+                return false;
+            }
+        }
+        this.addUnchecked(key, amount);
+        return true;
+    }
+
+    private void addUnchecked(String key, long amount) {
+        Node[] path = new Node[key.length() + 1];
+        Node node = this.root;
+        path[0] = node;
+        for (int i = 0; i < key.length(); i++) {
+            node = node.getOrAddChild(key.charAt(i));
+            path[i + 1] = node;
+        }
+        if (node.key == null) {
+            node.key = key;
+            this.size++;
+        }
+        node.weight += amount;
+
+        for (Node ancestor : path) {
+            ancestor.offer(node.key, node.weight, this.k);
+        }
+    }
+
+    /**
+     * Passes the (at most k) highest weighted keys starting with the given prefix to
+     * the consumer, along with their weights, in decreasing order of weight.
+     */
+    public synchronized void complete(String prefix, ObjLongConsumer<String> consumer) {
+        Node node = this.find(prefix);
+        if (node == null) {
+            return;
+        }
+        for (int i = 0; i < node.topCount; i++) {
+            consumer.accept(node.topKeys[i], node.topWeights[i]);
+        }
+    }
+
+    private Node find(String key) {
+        Node node = this.root;
+        for (int i = 0; i < key.length() && node != null; i++) {
+            node = node.getChild(key.charAt(i));
+        }
+        return node;
+    }
+
+    private static class Node {
+        // Children, sorted by the character leading to them
+        private char[] labels;
+        private Node[] children;
+
+        // Set if a key ends at this node
+        private String key;
+        private long weight;
+
+        // The highest weighted keys below this node, best first
+        private String[] topKeys;
+        private long[] topWeights;
+        private int topCount;
+
+        public Node() {
+            this.labels = NO_LABELS;
+            this.children = NO_CHILDREN;
+            this.topKeys = new String[1];
+            this.topWeights = new long[1];
+            this.topCount = 0;
+        }
+
+        public Node getChild(char label) {
+            int index = Arrays.binarySearch(this.labels, label);
+            return index < 0 ? null : this.children[index];
+        }
+
+        public Node getOrAddChild(char label) {
+            int index = Arrays.binarySearch(this.labels, label);
+            if (index >= 0) {
+                return this.children[index];
+            }
+
+            int insertAt = -index - 1;
+            int count = this.labels.length;
+            char[] labels = new char[count + 1];
+            Node[] children = new Node[count + 1];
+            System.arraycopy(this.labels, 0, labels, 0, insertAt);
+            System.arraycopy(this.children, 0, children, 0, insertAt);
+            System.arraycopy(this.labels, insertAt, labels, insertAt + 1, count - insertAt);
+            System.arraycopy(this.children, insertAt, children, insertAt + 1, count - insertAt);
+            labels[insertAt] = label;
+            children[insertAt] = new Node();
+            this.labels = labels;
+            this.children = children;
+            return children[insertAt];
+        }
+
+        /**
+         * Records that the given key below this node now has the given weight, which
+         * is no lower than before.
+         */
+        public void offer(String key, long weight, int k) {
+            // Every key's String is the one stored at its own node, so identity will do
+            int position = -1;
+            for (int i = 0; i < this.topCount; i++) {
+                if (this.topKeys[i] == key) {
+                    position = i;
+                    break;
+                }
+            }
+
+            if (position == -1) {
+                if (this.topCount < k) {
+                    if (this.topCount == this.topKeys.length) {
+                        int length = Math.min(k, this.topKeys.length * 2);
+                        this.topKeys = Arrays.copyOf(this.topKeys, length);
+                        this.topWeights = Arrays.copyOf(this.topWeights, length);
+                    }
+                    position = this.topCount;
+                    this.topCount++;
+                } else if (isBetter(key, weight, this.topKeys[k - 1], this.topWeights[k - 1])) {
+                    position = k - 1;
+                } else {
+                    return;
+                }
+            }
+
+            // Move the key up past every key it now beats
+            while (position > 0 && isBetter(key, weight, this.topKeys[position - 1], this.topWeights[position - 1])) {
+                this.topKeys[position] = this.topKeys[position - 1];
+                this.topWeights[position] = this.topWeights[position - 1];
+                position--;
+            }
+            this.topKeys[position] = key;
+            this.topWeights[position] = weight;
+        }
+
+        private static boolean isBetter(String key, long weight, String otherKey, long otherWeight) {
+            return weight > otherWeight || (weight == otherWeight && key.compareTo(otherKey) < 0);
+        }
+    }
+}
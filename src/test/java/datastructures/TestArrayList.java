@@ -0,0 +1,58 @@
+package datastructures;
+
+import datastructures.concrete.ArrayList;
+import datastructures.interfaces.IList;
+import org.junit.Test;
+
+/**
+ * Runs every DoubleLinkedList test against ArrayList, plus a few tests of its own.
+ */
+public class TestArrayList extends TestDoubleLinkedList {
+    @Override
+    protected <T> IList<T> makeInstance() {
+        return new ArrayList<T>();
+    }
+
+    /**
+     * Inserting at the front shifts every later item, so unlike DoubleLinkedList,
+     * ArrayList is only expected to handle a modest number of such inserts.
+     */
+    @Override
+    @Test(timeout=SECOND)
+    public void testInsertAtFrontIsEfficient() {
+        IList<Integer> list = this.makeInstance();
+        int cap = 10000;
+        for (int i = 0; i < cap; i++) {
+            list.insert(0, i * 2);
+        }
+        assertEquals(cap, list.size());
+        assertEquals((cap - 1) * 2, list.get(0));
+        assertEquals(0, list.get(cap - 1));
+    }
+
+    @Test(timeout=SECOND)
+    public void testGrowsPastInitialCapacity() {
+        IList<Integer> list = new ArrayList<>(0);
+        for (int i = 0; i < 1000; i++) {
+            list.add(i);
+        }
+        list.insert(500, -1);
+        assertEquals(1001, list.size());
+        assertEquals(-1, list.get(500));
+        assertEquals(999, list.get(1000));
+
+        assertEquals(-1, list.delete(500));
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i, list.get(i));
+        }
+    }
+
+    @Test(timeout=SECOND)
+    public void testNullItems() {
+        IList<String> list = this.makeInstance();
+        list.add("a");
+        list.add(null);
+        assertEquals(1, list.indexOf(null));
+        assertEquals(-1, list.indexOf("b"));
+    }
+}
@@ -0,0 +1,129 @@
+package datastructures.dictionaries;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import datastructures.concrete.KVPair;
+import datastructures.concrete.dictionaries.IntDoubleDictionary;
+import datastructures.concrete.dictionaries.IntIntDictionary;
+import datastructures.concrete.dictionaries.ObjectDoubleDictionary;
+import misc.BaseTest;
+import misc.exceptions.NoSuchKeyException;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+public class TestPrimitiveDictionaries extends BaseTest {
+    public static final double DELTA = 0.000001;
+
+    @Test(timeout=SECOND)
+    public void testObjectDoublePutGetAndAdd() {
+        ObjectDoubleDictionary<String> dict = new ObjectDoubleDictionary<>();
+        dict.putDouble("a", 1.5);
+        dict.put("b", 2.0);
+        assertEquals(3.5, dict.addDouble("b", 1.5), DELTA);
+        assertEquals(4.0, dict.addDouble("c", 4.0), DELTA);
+
+        assertEquals(3, dict.size());
+        assertEquals(1.5, dict.getDouble("a"), DELTA);
+        assertEquals(3.5, dict.get("b"), DELTA);
+        assertEquals(-1.0, dict.getDoubleOrDefault("d", -1.0), DELTA);
+        assertEquals(null, dict.getOrDefault("d", null));
+        assertFalse(dict.containsKey("d"));
+
+        try {
+            dict.getDouble("d");
+            fail("Expected NoSuchKeyException");
+        } catch (NoSuchKeyException ex) {
+            // All ok -- fall through
+        }
+    }
+
+    @Test(timeout=SECOND)
+    public void testObjectDoubleNullKeyAndCollisions() {
+        ObjectDoubleDictionary<Wrapper<String>> dict = new ObjectDoubleDictionary<>();
+        for (int i = 0; i < 500; i++) {
+            dict.putDouble(new Wrapper<>("" + i, 0), i);
+        }
+        dict.putDouble(null, -1.0);
+
+        assertEquals(501, dict.size());
+        assertEquals(-1.0, dict.getDouble(null), DELTA);
+        for (int i = 0; i < 500; i += 2) {
+            assertEquals((double) i, dict.remove(new Wrapper<>("" + i, 0)));
+        }
+        for (int i = 0; i < 500; i++) {
+            assertEquals(i % 2 == 1, dict.containsKey(new Wrapper<>("" + i, 0)));
+        }
+
+        int count = 0;
+        for (KVPair<Wrapper<String>, Double> pair : dict) {
+            assertTrue(pair.getKey() == null || pair.getValue() % 2 == 1);
+            count++;
+        }
+        assertEquals(251, count);
+    }
+
+    @Test(timeout=5 * SECOND)
+    public void testIntDoubleMatchesHashMap() {
+        IntDoubleDictionary dict = new IntDoubleDictionary();
+        Map<Integer, Double> expected = new HashMap<>();
+        Random random = new Random(7);
+
+        for (int i = 0; i < 100000; i++) {
+            int key = random.nextInt(2000) - 1000;
+            int operation = random.nextInt(3);
+            if (operation == 0) {
+                double value = random.nextDouble();
+                dict.putDouble(key, value);
+                expected.put(key, value);
+            } else if (operation == 1) {
+                dict.addDouble(key, 1.0);
+                expected.merge(key, 1.0, Double::sum);
+            } else if (expected.containsKey(key)) {
+                assertEquals(expected.remove(key), dict.remove(key));
+            } else {
+                assertFalse(dict.containsKey(key));
+            }
+        }
+
+        assertEquals(expected.size(), dict.size());
+        for (Map.Entry<Integer, Double> entry : expected.entrySet()) {
+            assertEquals(entry.getValue(), dict.getDouble(entry.getKey()), DELTA);
+        }
+        double[] total = new double[1];
+        dict.forEachDouble((key, value) -> total[0] += value);
+        assertEquals(expected.values().stream().mapToDouble(Double::doubleValue).sum(), total[0], DELTA);
+    }
+
+    @Test(timeout=5 * SECOND)
+    public void testIntIntMatchesHashMap() {
+        IntIntDictionary dict = new IntIntDictionary(16);
+        Map<Integer, Integer> expected = new HashMap<>();
+        Random random = new Random(11);
+
+        for (int i = 0; i < 100000; i++) {
+            // Multiples of a large power of two all share their low bits
+            int key = random.nextInt(1000) << 16;
+            if (random.nextInt(4) == 0) {
+                if (expected.containsKey(key)) {
+                    assertEquals(expected.remove(key), dict.remove(key));
+                }
+            } else {
+                assertEquals(expected.merge(key, 1, Integer::sum).intValue(), dict.addInt(key, 1));
+            }
+        }
+
+        assertEquals(expected.size(), dict.size());
+        int count = 0;
+        for (KVPair<Integer, Integer> pair : dict) {
+            assertEquals(expected.get(pair.getKey()), pair.getValue());
+            count++;
+        }
+        assertEquals(expected.size(), count);
+        assertEquals(0, dict.getIntOrDefault(1, 0));
+    }
+}
@@ -0,0 +1,110 @@
+package search;
+
+import static org.junit.Assert.assertTrue;
+
+import datastructures.concrete.ArrayList;
+import datastructures.concrete.ChainedHashSet;
+import datastructures.concrete.dictionaries.ChainedHashDictionary;
+import datastructures.interfaces.IDictionary;
+import datastructures.interfaces.IList;
+import datastructures.interfaces.ISet;
+import misc.BaseTest;
+import org.junit.Test;
+import search.analyzers.Bm25Model;
+import search.analyzers.InvertedIndex;
+import search.analyzers.TfIdfAnalyzer;
+import search.models.DocumentRegistry;
+import search.models.Webpage;
+
+import java.net.URI;
+
+public class TestBm25Model extends BaseTest {
+    public static final double DELTA = 0.000001;
+
+    private static IList<String> words(String text) {
+        IList<String> words = new ArrayList<>();
+        for (String word : text.split(" ")) {
+            words.add(word);
+        }
+        return words;
+    }
+
+    private static Webpage page(String name, String text) {
+        return new Webpage(
+                URI.create("http://example.com/" + name + ".html"),
+                new ArrayList<>(),
+                words(text),
+                name,
+                "blurb");
+    }
+
+    private static double count(IList<String> words, String word) {
+        double count = 0;
+        for (String other : words) {
+            if (other.equals(word)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Test(timeout=SECOND)
+    public void testMatchesFormula() {
+        ISet<Webpage> pages = new ChainedHashSet<>();
+        pages.add(page("a", "the mouse played with the cat"));
+        pages.add(page("b", "the quick brown fox jumped over the lazy dog"));
+        pages.add(page("c", "dog 1 and dog 2 ate the hot dog"));
+        pages.add(page("d", "a dog"));
+        DocumentRegistry registry = new DocumentRegistry(pages);
+        InvertedIndex index = new TfIdfAnalyzer(pages, registry).getInvertedIndex();
+
+        double k1 = 1.5;
+        double b = 0.5;
+        Bm25Model model = new Bm25Model(index, k1, b);
+        double averageLength = (6 + 9 + 9 + 2) / 4.0;
+
+        IList<String> query = words("dog the dog zebra");
+        IDictionary<Integer, Double> actual = new ChainedHashDictionary<>();
+        model.computeRelevances(query, (docId, relevance) -> actual.put(docId, relevance));
+
+        assertEquals(4, actual.size());
+        for (Webpage page : pages) {
+            double expected = 0.0;
+            for (String word : query) {
+                double documentFrequency = 0;
+                for (Webpage other : pages) {
+                    if (count(other.getWords(), word) > 0) {
+                        documentFrequency++;
+                    }
+                }
+                double frequency = count(page.getWords(), word);
+                if (frequency > 0) {
+                    double idf = Math.log(1 + (4 - documentFrequency + 0.5) / (documentFrequency + 0.5));
+                    double lengthNorm = k1 * (1 - b + b * page.getWords().size() / averageLength);
+                    expected += idf * frequency * (k1 + 1) / (frequency + lengthNorm);
+                }
+            }
+            assertEquals(expected, actual.get(registry.getId(page.getUri())), DELTA);
+        }
+    }
+
+    @Test(timeout=SECOND)
+    public void testRepeatsHaveDiminishingReturns() {
+        ISet<Webpage> pages = new ChainedHashSet<>();
+        pages.add(page("once", "dog cat bird fish"));
+        pages.add(page("twice", "dog dog bird fish"));
+        pages.add(page("many", "dog dog dog dog"));
+        pages.add(page("none", "cat bird fish horse"));
+        DocumentRegistry registry = new DocumentRegistry(pages);
+        Bm25Model model = new Bm25Model(new TfIdfAnalyzer(pages, registry).getInvertedIndex());
+
+        double[] scores = new double[registry.size()];
+        model.computeRelevances(words("dog"), (docId, relevance) -> scores[docId] = relevance);
+        double once = scores[registry.getId(URI.create("http://example.com/once.html"))];
+        double twice = scores[registry.getId(URI.create("http://example.com/twice.html"))];
+        double many = scores[registry.getId(URI.create("http://example.com/many.html"))];
+
+        assertTrue(once < twice && twice < many);
+        assertTrue(many - twice < twice - once);
+    }
+}
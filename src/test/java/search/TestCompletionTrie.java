@@ -0,0 +1,117 @@
+package search;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import misc.BaseTest;
+import org.junit.Test;
+import search.suggest.CompletionTrie;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+
+public class TestCompletionTrie extends BaseTest {
+    private static List<String> complete(CompletionTrie trie, String prefix) {
+        List<String> out = new ArrayList<>();
+        trie.complete(prefix, (key, weight) -> out.add(key));
+        return out;
+    }
+
+    @Test(timeout=SECOND)
+    public void testCompletesByWeight() {
+        CompletionTrie trie = new CompletionTrie(3);
+        trie.add("seattle", 50);
+        trie.add("seahawks", 20);
+        trie.add("sea", 30);
+        trie.add("search", 20);
+        trie.add("ferry", 100);
+        assertEquals(5, trie.size());
+
+        assertEquals(Arrays.asList("seattle", "sea", "seahawks"), complete(trie, "sea"));
+        assertEquals(Arrays.asList("seahawks"), complete(trie, "seah"));
+        assertEquals(Arrays.asList("search"), complete(trie, "sear"));
+        assertEquals(Arrays.asList("ferry", "seattle", "sea"), complete(trie, ""));
+        assertEquals(Arrays.asList("seattle"), complete(trie, "seattle"));
+        assertEquals(0, complete(trie, "seattles").size());
+        assertEquals(0, complete(trie, "x").size());
+    }
+
+    @Test(timeout=SECOND)
+    public void testAddingRaisesWeight() {
+        CompletionTrie trie = new CompletionTrie(2);
+        trie.add("seattle coffee", 1);
+        trie.add("seattle ferry", 2);
+        trie.add("seattle", 3);
+        assertEquals(Arrays.asList("seattle", "seattle ferry"), complete(trie, "seattle"));
+
+        trie.add("seattle coffee", 1);
+        trie.add("seattle coffee", 2);
+        assertEquals(3, trie.size());
+        assertEquals(4L, trie.getWeight("seattle coffee"));
+        assertEquals(0L, trie.getWeight("seattle c"));
+        assertEquals(Arrays.asList("seattle coffee", "seattle"), complete(trie, "seattle"));
+        assertEquals(Arrays.asList("seattle coffee", "seattle ferry"), complete(trie, "seattle "));
+
+        try {
+            trie.add("seattle", 0);
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException ex) {
+            // Do nothing: this is ok
+        }
+    }
+
+    @Test(timeout=SECOND)
+    public void testBoundedAddOnlyRaisesKnownKeysWhenFull() {
+        CompletionTrie trie = new CompletionTrie(3);
+        assertTrue(trie.add("seattle", 1, 2));
+        assertTrue(trie.add("sea", 1, 2));
+        assertEquals(2, trie.size());
+
+        // Full: new keys are turned away, even ones on the path of existing keys
+        assertTrue(!trie.add("ferry", 5, 2));
+        assertTrue(!trie.add("seat", 5, 2));
+        assertEquals(2, trie.size());
+        assertEquals(0L, trie.getWeight("ferry"));
+        assertEquals(Arrays.asList("sea", "seattle"), complete(trie, "s"));
+
+        // But keys already in the trie keep counting
+        assertTrue(trie.add("seattle", 2, 2));
+        assertEquals(3L, trie.getWeight("seattle"));
+        assertEquals(Arrays.asList("seattle", "sea"), complete(trie, "s"));
+        assertTrue(trie.add("ferry", 1, 3));
+        assertEquals(3, trie.size());
+    }
+
+    @Test(timeout=SECOND)
+    public void testMatchesSortingEveryKey() {
+        Random random = new Random(7);
+        CompletionTrie trie = new CompletionTrie(5);
+        TreeMap<String, Long> weights = new TreeMap<>();
+        for (int i = 0; i < 20000; i++) {
+            String key = Integer.toString(random.nextInt(5000), 7);
+            long amount = 1 + random.nextInt(10);
+            trie.add(key, amount);
+            weights.merge(key, amount, Long::sum);
+        }
+        assertEquals(weights.size(), trie.size());
+
+        for (String prefix : new String[] {"", "1", "12", "345", "6"}) {
+            List<String> expected = new ArrayList<>();
+            for (String key : weights.keySet()) {
+                if (key.startsWith(prefix)) {
+                    expected.add(key);
+                }
+            }
+            expected.sort((a, b) -> {
+                int byWeight = Long.compare(weights.get(b), weights.get(a));
+                return byWeight != 0 ? byWeight : a.compareTo(b);
+            });
+            List<String> actual = complete(trie, prefix);
+            assertTrue(actual.size() <= 5);
+            assertEquals(expected.subList(0, Math.min(5, expected.size())), actual);
+        }
+    }
+}
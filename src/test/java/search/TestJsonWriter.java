@@ -0,0 +1,72 @@
+package search;
+
+import misc.BaseTest;
+import org.junit.Test;
+import search.misc.JsonWriter;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+public class TestJsonWriter extends BaseTest {
+    @Test(timeout=SECOND)
+    public void testNestedValues() throws IOException {
+        StringWriter out = new StringWriter();
+        new JsonWriter(out).beginObject()
+                .name("query").value("seattle")
+                .name("offset").value(10)
+                .name("results").beginArray()
+                    .beginObject().name("score").value(0.5).endObject()
+                    .beginObject().name("score").value(0.25).endObject()
+                .endArray()
+                .name("empty").beginArray().endArray()
+                .endObject();
+
+        assertEquals("{\"query\":\"seattle\",\"offset\":10,"
+                + "\"results\":[{\"score\":0.5},{\"score\":0.25}],\"empty\":[]}", out.toString());
+    }
+
+    @Test(timeout=SECOND)
+    public void testEscapesStrings() throws IOException {
+        StringWriter out = new StringWriter();
+        new JsonWriter(out).beginArray()
+                .value("say \"hi\"\\now")
+                .value("line\nbreak\ttab\u0001\u2028")
+                .value("caf\u00e9")
+                .value((String) null)
+                .endArray();
+
+        assertEquals("[\"say \\\"hi\\\"\\\\now\",\"line\\nbreak\\ttab\\u0001\\u2028\",\"caf\u00e9\",null]",
+                out.toString());
+    }
+
+    @Test(timeout=SECOND)
+    public void testNonFiniteNumbersAreNull() throws IOException {
+        StringWriter out = new StringWriter();
+        new JsonWriter(out).beginArray()
+                .value(Double.NaN)
+                .value(Double.POSITIVE_INFINITY)
+                .value(1e-7)
+                .endArray();
+
+        assertEquals("[null,null,1.0E-7]", out.toString());
+    }
+
+    @Test(timeout=SECOND)
+    public void testDeepNesting() throws IOException {
+        StringWriter out = new StringWriter();
+        JsonWriter json = new JsonWriter(out);
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 20; i++) {
+            json.beginArray().value(i);
+            expected.append("[").append(i).append(",");
+        }
+        json.value(20);
+        expected.append("20");
+        for (int i = 0; i < 20; i++) {
+            json.endArray();
+            expected.append("]");
+        }
+
+        assertEquals(expected.toString(), out.toString());
+    }
+}
@@ -0,0 +1,72 @@
+package search;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import datastructures.concrete.ChainedHashSet;
+import datastructures.concrete.DoubleLinkedList;
+import datastructures.interfaces.IList;
+import datastructures.interfaces.ISet;
+import misc.BaseTest;
+import org.junit.Test;
+import search.analyzers.LinkGraph;
+import search.models.DocumentRegistry;
+import search.models.Webpage;
+
+import java.net.URI;
+
+public class TestLinkGraph extends BaseTest {
+    private Webpage buildPage(URI currentPage, URI[] linksTo) {
+        IList<URI> links = new DoubleLinkedList<>();
+        for (URI uri : linksTo) {
+            links.add(uri);
+        }
+        return new Webpage(currentPage, links, new DoubleLinkedList<>(), "title", "blurb");
+    }
+
+    private static int[] getTargets(LinkGraph graph, int vertex) {
+        int[] targets = new int[graph.getOutDegree(vertex)];
+        for (int i = 0; i < targets.length; i++) {
+            targets[i] = graph.getTarget(graph.getOffset(vertex) + i);
+        }
+        return targets;
+    }
+
+    @Test(timeout=SECOND)
+    public void testDropsDuplicateSelfAndExternalLinks() {
+        URI pageAUri = URI.create("http://example.com/page-a.html");
+        URI pageBUri = URI.create("http://example.com/page-b.html");
+        URI pageCUri = URI.create("http://example.com/page-c.html");
+        URI externalUri = URI.create("http://elsewhere.com/page.html");
+
+        ISet<Webpage> pages = new ChainedHashSet<>();
+        pages.add(this.buildPage(pageAUri, new URI[] {pageBUri, pageBUri, pageAUri, externalUri, pageCUri}));
+        pages.add(this.buildPage(pageBUri, new URI[] {pageCUri}));
+        pages.add(this.buildPage(pageCUri, new URI[] {}));
+        DocumentRegistry registry = new DocumentRegistry(pages);
+        int a = registry.getId(pageAUri);
+        int b = registry.getId(pageBUri);
+        int c = registry.getId(pageCUri);
+
+        LinkGraph graph = new LinkGraph(pages, registry);
+        assertEquals(3, graph.size());
+        assertEquals(3, graph.getEdgeCount());
+        assertEquals(0, graph.getOffset(0));
+        assertEquals(graph.getEdgeCount(), graph.getOffset(graph.size()));
+        for (int v = 0; v < graph.size(); v++) {
+            assertEquals(graph.getOffset(v + 1) - graph.getOffset(v), graph.getOutDegree(v));
+        }
+
+        // Targets keep the order of each page's first link to them
+        assertArrayEquals(new int[] {b, c}, getTargets(graph, a));
+        assertArrayEquals(new int[] {c}, getTargets(graph, b));
+        assertArrayEquals(new int[] {}, getTargets(graph, c));
+
+        // Incoming links come out in increasing order of source
+        LinkGraph transpose = graph.transpose();
+        assertEquals(3, transpose.size());
+        assertEquals(3, transpose.getEdgeCount());
+        assertArrayEquals(new int[] {}, getTargets(transpose, a));
+        assertArrayEquals(new int[] {a}, getTargets(transpose, b));
+        assertArrayEquals(a < b ? new int[] {a, b} : new int[] {b, a}, getTargets(transpose, c));
+    }
+}
@@ -7,9 +7,11 @@ import datastructures.interfaces.ISet;
 import misc.BaseTest;
 import org.junit.Test;
 import search.analyzers.PageRankAnalyzer;
+import search.models.DocumentRegistry;
 import search.models.Webpage;
 
 import java.net.URI;
+import java.util.Arrays;
 
 public class TestPageRankAnalyzer extends BaseTest {
     // We say two floating point numbers are equal if they're within
@@ -92,4 +94,97 @@ public class TestPageRankAnalyzer extends BaseTest {
         assertEquals(0.05244, analyzer.computePageRank(pageEUri), DELTA);
     }
 
+    @Test(timeout=10*SECOND)
+    public void testParallelMatchesSequential() {
+        int pageCount = 5000;
+        URI[] uris = new URI[pageCount];
+        for (int i = 0; i < pageCount; i++) {
+            uris[i] = URI.create("http://example.com/page-" + i + ".html");
+        }
+
+        // Every tenth page is a dead end; the rest link to a few pseudo-random pages
+        ISet<Webpage> pages = new ChainedHashSet<>();
+        for (int i = 0; i < pageCount; i++) {
+            URI[] links = new URI[i % 10 == 0 ? 0 : 1 + i % 4];
+            for (int j = 0; j < links.length; j++) {
+                links[j] = uris[(i * 31 + j * 977 + 7) % pageCount];
+            }
+            pages.add(this.buildPage(uris[i], links));
+        }
+
+        DocumentRegistry registry = new DocumentRegistry(pages);
+        double epsilon = 0.0000001;
+        PageRankAnalyzer sequential = new PageRankAnalyzer(pages, registry, 0.85, epsilon, 100, 1);
+        PageRankAnalyzer parallel = new PageRankAnalyzer(pages, registry, 0.85, epsilon, 100, 4);
+
+        for (URI uri : uris) {
+            assertEquals(sequential.computePageRank(uri), parallel.computePageRank(uri), epsilon);
+        }
+    }
+
+    /**
+     * Computes page rank the way the spec describes it, with every dangling page
+     * sharing its rank with each page one at a time.
+     */
+    private static double[] computeSpecPageRanks(int[][] links, double decay, double epsilon, int limit) {
+        int pageCount = links.length;
+        double[] oldRanks = new double[pageCount];
+        Arrays.fill(oldRanks, 1.0 / pageCount);
+        for (int i = 0; i < limit; i++) {
+            double[] newRanks = new double[pageCount];
+            Arrays.fill(newRanks, (1 - decay) / pageCount);
+            for (int page = 0; page < pageCount; page++) {
+                if (links[page].length == 0) {
+                    for (int other = 0; other < pageCount; other++) {
+                        newRanks[other] += decay * oldRanks[page] / pageCount;
+                    }
+                } else {
+                    for (int target : links[page]) {
+                        newRanks[target] += decay * oldRanks[page] / links[page].length;
+                    }
+                }
+            }
+
+            boolean converged = true;
+            for (int page = 0; page < pageCount; page++) {
+                converged &= Math.abs(newRanks[page] - oldRanks[page]) < epsilon;
+            }
+            if (converged) {
+                break;
+            }
+            oldRanks = newRanks;
+        }
+        return oldRanks;
+    }
+
+    @Test(timeout=SECOND)
+    public void testMostlyDanglingPagesMatchSpecFormula() {
+        int pageCount = 200;
+        URI[] uris = new URI[pageCount];
+        for (int i = 0; i < pageCount; i++) {
+            uris[i] = URI.create("http://example.com/page-" + i + ".html");
+        }
+
+        // Only every fifth page links anywhere
+        int[][] links = new int[pageCount][];
+        ISet<Webpage> pages = new ChainedHashSet<>();
+        for (int i = 0; i < pageCount; i++) {
+            links[i] = i % 5 == 0 ? new int[] {(i + 1) % pageCount, (i * 7 + 3) % pageCount} : new int[0];
+            URI[] linkUris = new URI[links[i].length];
+            for (int j = 0; j < links[i].length; j++) {
+                linkUris[j] = uris[links[i][j]];
+            }
+            pages.add(this.buildPage(uris[i], linkUris));
+        }
+
+        double epsilon = 0.0000001;
+        double[] expected = computeSpecPageRanks(links, 0.85, epsilon, 100);
+        PageRankAnalyzer analyzer = new PageRankAnalyzer(pages, 0.85, epsilon, 100);
+        double total = 0.0;
+        for (int i = 0; i < pageCount; i++) {
+            assertEquals(expected[i], analyzer.computePageRank(uris[i]), DELTA / pageCount);
+            total += analyzer.computePageRank(uris[i]);
+        }
+        assertEquals(1.0, total, DELTA);
+    }
 }
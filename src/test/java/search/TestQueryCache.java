@@ -0,0 +1,136 @@
+package search;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import datastructures.concrete.ArrayList;
+import datastructures.interfaces.IList;
+import misc.BaseTest;
+import org.junit.Test;
+import search.cache.QueryCache;
+import search.models.Result;
+import search.models.WebpageSummary;
+
+import java.net.URI;
+
+public class TestQueryCache extends BaseTest {
+    private static IList<String> query(String text) {
+        IList<String> words = new ArrayList<>();
+        for (String word : text.split(" ")) {
+            words.add(word);
+        }
+        return words;
+    }
+
+    private static IList<Result> results(int count) {
+        IList<Result> results = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            WebpageSummary summary = new WebpageSummary(
+                    URI.create("http://example.com/page-" + i + ".html"), "title", "blurb");
+            results.add(new Result(summary, 1.0 / (i + 1)));
+        }
+        return results;
+    }
+
+    @Test(timeout=SECOND)
+    public void testHitsAndMisses() {
+        QueryCache cache = QueryCache.withMaxEntries(QueryCache.Eviction.LRU, 10);
+        IList<Result> results = results(3);
+
+        assertNull(cache.get(query("seattle coffee"), 20, 1));
+        cache.put(query("seattle coffee"), 20, 1, results);
+        assertTrue(results == cache.get(query("seattle coffee"), 20, 1));
+
+        // The word order is not part of the key, but repeated words and the number
+        // of results are
+        assertTrue(results == cache.get(query("coffee seattle"), 20, 1));
+        assertNull(cache.get(query("seattle coffee coffee"), 20, 1));
+        assertNull(cache.get(query("seattle coffee"), 10, 1));
+
+        assertEquals(2L, cache.getHitCount());
+        assertEquals(3L, cache.getMissCount());
+        assertEquals(1, cache.size());
+    }
+
+    @Test(timeout=SECOND)
+    public void testLruEvictsLeastRecentlyUsed() {
+        QueryCache cache = QueryCache.withMaxEntries(QueryCache.Eviction.LRU, 3);
+        cache.put(query("a"), 10, 1, results(1));
+        cache.put(query("b"), 10, 1, results(1));
+        cache.put(query("c"), 10, 1, results(1));
+        assertNotNull(cache.get(query("a"), 10, 1));
+
+        cache.put(query("d"), 10, 1, results(1));
+        assertEquals(3, cache.size());
+        assertEquals(1L, cache.getEvictionCount());
+        assertNotNull(cache.get(query("a"), 10, 1));
+        assertNull(cache.get(query("b"), 10, 1));
+        assertNotNull(cache.get(query("c"), 10, 1));
+        assertNotNull(cache.get(query("d"), 10, 1));
+    }
+
+    @Test(timeout=SECOND)
+    public void testTinyLfuKeepsPopularQueriesThroughScan() {
+        QueryCache cache = QueryCache.withMaxEntries(QueryCache.Eviction.TINY_LFU, 100);
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < 50; i++) {
+                IList<String> popular = query("popular " + i);
+                if (cache.get(popular, 10, 1) == null) {
+                    cache.put(popular, 10, 1, results(1));
+                }
+            }
+        }
+
+        // A long run of queries asked for only once
+        for (int i = 0; i < 1000; i++) {
+            IList<String> rare = query("rare " + i);
+            if (cache.get(rare, 10, 1) == null) {
+                cache.put(rare, 10, 1, results(1));
+            }
+        }
+
+        int kept = 0;
+        for (int i = 0; i < 50; i++) {
+            if (cache.get(query("popular " + i), 10, 1) != null) {
+                kept++;
+            }
+        }
+        assertTrue("Only " + kept + " popular queries kept", kept >= 45);
+        assertTrue(cache.size() <= 100);
+    }
+
+    @Test(timeout=SECOND)
+    public void testByteLimit() {
+        for (QueryCache.Eviction eviction : QueryCache.Eviction.values()) {
+            QueryCache cache = QueryCache.withMaxBytes(eviction, 20000);
+            for (int i = 0; i < 500; i++) {
+                cache.put(query("query " + i), 20, 1, results(20));
+                assertTrue(cache.getWeight() <= 20000);
+            }
+            assertTrue(cache.size() > 0);
+            assertTrue(cache.getEvictionCount() > 0);
+
+            // An entry bigger than the whole cache is never kept
+            cache.put(query("huge"), 1000, 1, results(1000));
+            assertNull(cache.get(query("huge"), 1000, 1));
+        }
+    }
+
+    @Test(timeout=SECOND)
+    public void testNewGenerationInvalidates() {
+        QueryCache cache = QueryCache.withMaxEntries(QueryCache.Eviction.TINY_LFU, 10);
+        cache.put(query("seattle"), 20, 1, results(2));
+        assertNotNull(cache.get(query("seattle"), 20, 1));
+
+        assertNull(cache.get(query("seattle"), 20, 2));
+        assertEquals(0, cache.size());
+
+        // Results computed from the old index arriving late are dropped
+        cache.put(query("seattle"), 20, 1, results(2));
+        assertNull(cache.get(query("seattle"), 20, 2));
+
+        cache.put(query("seattle"), 20, 2, results(2));
+        assertNotNull(cache.get(query("seattle"), 20, 2));
+    }
+}
@@ -0,0 +1,105 @@
+package search;
+
+import static org.junit.Assert.assertTrue;
+
+import datastructures.concrete.ArrayList;
+import datastructures.interfaces.IList;
+import misc.BaseTest;
+import org.junit.Test;
+import search.models.Result;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+public class TestSearchEngineSnapshot extends BaseTest {
+    // Old enough that every page predates any snapshot we write
+    private static final FileTime LONG_AGO =
+            FileTime.from(System.currentTimeMillis() - 86400000L, TimeUnit.MILLISECONDS);
+
+    private static void writePage(Path path, String name, String text) throws IOException {
+        String contents = "<!-- METADATA\nuri: http://example.com/" + name + "\n-->\n"
+                + "<html><head><title>" + name + "</title></head><body><p>" + text + "</p>\n"
+                + "<a href=\"http://example.com/a\">home</a></body></html>";
+        Files.createDirectories(path.getParent());
+        Files.write(path, contents.getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(path, LONG_AGO);
+    }
+
+    private static void makeFoldersOld(Path root) throws IOException {
+        Files.setLastModifiedTime(root.resolve("sub"), LONG_AGO);
+        Files.setLastModifiedTime(root, LONG_AGO);
+    }
+
+    private static IList<URI> search(SearchEngine engine, String word) {
+        IList<String> query = new ArrayList<>();
+        query.add(word);
+        IList<URI> out = new ArrayList<>();
+        for (Result result : engine.getTopKResults(query, 10)) {
+            out.add(result.getUri());
+        }
+        return out;
+    }
+
+    private static void deleteAll(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Test(timeout=10 * SECOND)
+    public void testReindexesWhenPagesAreAddedOrDeleted() throws IOException {
+        Path directory = Files.createTempDirectory("engine");
+        try {
+            Path root = directory.resolve("pages");
+            Path snapshot = directory.resolve("pages.snapshot");
+            writePage(root.resolve("a.html"), "a", "seattle ferry");
+            writePage(root.resolve("sub").resolve("b.html"), "b", "seattle coffee");
+            writePage(root.resolve("sub").resolve("c.html"), "c", "seattle rain");
+            makeFoldersOld(root);
+
+            // Indexing serves from the analyzers, then from the snapshot just saved
+            SearchEngine engine = new SearchEngine(root, snapshot);
+            assertEquals(2L, engine.getGeneration());
+            assertEquals(3, search(engine, "seattle").size());
+            makeFoldersOld(root);
+
+            // Nothing changed, so the snapshot is used as is
+            engine = new SearchEngine(root, snapshot);
+            assertEquals(1L, engine.getGeneration());
+            assertEquals(3, search(engine, "seattle").size());
+            assertEquals(1, search(engine, "rain").size());
+
+            // Deleting a page from a subfolder leaves the data folder's time alone
+            SearchEngine previous = engine;
+            Files.delete(root.resolve("sub").resolve("c.html"));
+            Files.setLastModifiedTime(root, LONG_AGO);
+            engine = new SearchEngine(root, snapshot);
+            assertEquals(2L, engine.getGeneration());
+            assertEquals(2, search(engine, "seattle").size());
+            assertEquals(0, search(engine, "rain").size());
+
+            // The segment was replaced rather than rewritten under the engine still mapping it
+            assertEquals(3, search(previous, "seattle").size());
+            assertEquals(1, search(previous, "rain").size());
+
+            // So does copying in a page that keeps its original time
+            writePage(root.resolve("sub").resolve("d.html"), "d", "seattle salmon");
+            Files.setLastModifiedTime(root, LONG_AGO);
+            engine = new SearchEngine(root, snapshot);
+            assertEquals(2L, engine.getGeneration());
+            IList<URI> results = search(engine, "salmon");
+            assertEquals(1, results.size());
+            assertTrue(results.get(0).toString().endsWith("/d"));
+            assertEquals(3, search(engine, "seattle").size());
+        } finally {
+            deleteAll(directory);
+        }
+    }
+}
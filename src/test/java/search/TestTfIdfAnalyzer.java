@@ -1,5 +1,7 @@
 package search;
 
+import static org.junit.Assert.assertTrue;
+
 import datastructures.concrete.ChainedHashSet;
 import datastructures.concrete.DoubleLinkedList;
 import datastructures.concrete.KVPair;
@@ -9,10 +11,20 @@ import datastructures.interfaces.IList;
 import datastructures.interfaces.ISet;
 import misc.BaseTest;
 import org.junit.Test;
+import search.analyzers.CosineModel;
+import search.analyzers.InvertedIndex;
+import search.analyzers.PageRankAnalyzer;
+import search.analyzers.Postings;
+import search.analyzers.PreparedQuery;
 import search.analyzers.TfIdfAnalyzer;
+import search.index.IndexSegment;
+import search.models.DocumentRegistry;
 import search.models.Webpage;
 
+import java.io.IOException;
 import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
 
 public class TestTfIdfAnalyzer extends BaseTest {
     // We say two floating point numbers are equal if they're within
@@ -28,6 +40,10 @@ public class TestTfIdfAnalyzer extends BaseTest {
     }
 
     private TfIdfAnalyzer makeExampleAnalyzer() {
+        return new TfIdfAnalyzer(this.makeExamplePages());
+    }
+
+    private ISet<Webpage> makeExamplePages() {
         Webpage documentA = new Webpage(
                 URI.create("http://example.com/fake-page-a.html"),
                 new DoubleLinkedList<>(),
@@ -54,7 +70,7 @@ public class TestTfIdfAnalyzer extends BaseTest {
         documents.add(documentB);
         documents.add(documentC);
 
-        return new TfIdfAnalyzer(documents);
+        return documents;
     }
 
     private void compareVectors(IDictionary<String, Double> expected, IDictionary<String, Double> actual) {
@@ -135,4 +151,123 @@ public class TestTfIdfAnalyzer extends BaseTest {
                 analyzer.computeRelevance(query, URI.create("http://example.com/fake-page-c.html")),
                 DELTA);
     }
+
+    @Test(timeout=SECOND)
+    public void testInvertedIndexMatchesExhaustiveRelevance() {
+        TfIdfAnalyzer analyzer = this.makeExampleAnalyzer();
+
+        IList<String> query = strToIList("the 1 cat unknownword");
+        IDictionary<URI, Double> relevances = analyzer.computeRelevances(query);
+
+        // Document B only shares the word "the", so it is still a candidate
+        assertEquals(3, relevances.size());
+        for (KVPair<URI, Double> pair : relevances) {
+            assertEquals(
+                    analyzer.computeRelevance(query, pair.getKey()),
+                    pair.getValue(),
+                    DELTA);
+        }
+
+        // Documents sharing no words with the query are never visited
+        assertEquals(1, analyzer.computeRelevances(strToIList("fox")).size());
+        assertEquals(0, analyzer.computeRelevances(strToIList("zebra")).size());
+    }
+
+    @Test(timeout=SECOND)
+    public void testPreparedQueryMatchesUnprepared() {
+        ISet<Webpage> pages = this.makeExamplePages();
+        DocumentRegistry registry = new DocumentRegistry(pages);
+        TfIdfAnalyzer analyzer = new TfIdfAnalyzer(pages, registry);
+        CosineModel model = new CosineModel(analyzer.getInvertedIndex());
+
+        IList<String> query = strToIList("the 1 cat cat unknownword");
+        PreparedQuery prepared = analyzer.prepare(query);
+        assertEquals(4, prepared.size());
+        for (int i = 0; i < prepared.size(); i++) {
+            if (prepared.getWord(i).equals("unknownword")) {
+                assertEquals(0, prepared.getPostings(i).size());
+                assertEquals(-1, prepared.getTermId(i));
+            } else {
+                assertEquals(analyzer.getInvertedIndex().getTermId(prepared.getWord(i)), prepared.getTermId(i));
+            }
+        }
+
+        // The same prepared query is reused for every document
+        for (int docId = 0; docId < registry.size(); docId++) {
+            double expected = analyzer.computeRelevance(query, docId);
+            assertEquals(expected, analyzer.computeRelevance(prepared, docId), DELTA);
+            assertEquals(expected, model.computeRelevance(prepared, docId), DELTA);
+        }
+    }
+
+    @Test(timeout=SECOND)
+    public void testIndexSegmentMatchesInvertedIndex() throws IOException {
+        ISet<Webpage> pages = this.makeExamplePages();
+        DocumentRegistry registry = new DocumentRegistry(pages);
+        TfIdfAnalyzer analyzer = new TfIdfAnalyzer(pages, registry);
+        PageRankAnalyzer pageRanks = new PageRankAnalyzer(pages, registry, 0.85, 0.00001, 100);
+
+        Path directory = Files.createTempDirectory("segment");
+        IndexSegment.write(directory, analyzer, pageRanks, registry.size());
+        IndexSegment segment = IndexSegment.open(directory);
+        InvertedIndex index = analyzer.getInvertedIndex();
+
+        assertEquals(registry.size(), segment.getDocumentCount());
+        for (KVPair<String, Double> pair : analyzer.getIdfScores()) {
+            String word = pair.getKey();
+            assertEquals(pair.getValue(), segment.getIdfScore(word), DELTA);
+
+            Postings expected = index.getPostings(word);
+            Postings actual = segment.getPostings(word);
+            assertEquals(expected.size(), actual.size());
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(expected.getDocId(i), actual.getDocId(i));
+                assertEquals(expected.getWeight(i), actual.getWeight(i), DELTA);
+                assertEquals(expected.getFrequency(i), actual.getFrequency(i));
+            }
+            assertEquals(expected.size(), segment.getDocumentFrequency(word));
+        }
+        for (int docId = 0; docId < registry.size(); docId++) {
+            assertEquals(analyzer.getDocumentNorm(docId), segment.getDocumentNorm(docId), DELTA);
+            assertEquals(index.getDocumentLength(docId), segment.getDocumentLength(docId));
+            assertEquals(pageRanks.computePageRank(docId), segment.getPageRank(docId), DELTA);
+        }
+
+        int[] wordCount = new int[1];
+        boolean[] seenIds = new boolean[segment.getTermCount()];
+        segment.forEachWord((word, documentFrequency) -> {
+            assertEquals(index.getDocumentFrequency(word), documentFrequency);
+            seenIds[segment.getTermId(word)] = true;
+            wordCount[0]++;
+        });
+        assertEquals(analyzer.getIdfScores().size(), wordCount[0]);
+        assertEquals(index.getTermCount(), segment.getTermCount());
+        for (boolean seen : seenIds) {
+            assertTrue(seen);
+        }
+
+        assertEquals(0.0, segment.getIdfScore("zebra"), DELTA);
+        assertEquals(0, segment.getPostings("zebra").size());
+        assertEquals(0, segment.getDocumentFrequency("zebra"));
+        assertEquals(-1, segment.getTermId("zebra"));
+        assertEquals(-1, index.getTermId("zebra"));
+    }
+
+    @Test(timeout=SECOND)
+    public void testPostingsCountWords() {
+        ISet<Webpage> pages = this.makeExamplePages();
+        DocumentRegistry registry = new DocumentRegistry(pages);
+        InvertedIndex index = new TfIdfAnalyzer(pages, registry).getInvertedIndex();
+
+        // "dog 1 and dog 2 ate the hot dog"
+        int docC = registry.getId(URI.create("http://example.com/fake-page-c.html"));
+        assertEquals(9, index.getDocumentLength(docC));
+
+        Postings dog = index.getPostings("dog");
+        assertEquals(2, dog.size());
+        for (int i = 0; i < dog.size(); i++) {
+            assertEquals(dog.getDocId(i) == docC ? 3 : 1, dog.getFrequency(i));
+        }
+        assertEquals(3, index.getDocumentFrequency("the"));
+    }
 }
@@ -0,0 +1,105 @@
+package search;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import misc.BaseTest;
+import org.junit.Test;
+import search.analyzers.TopKCollector;
+
+import java.util.Arrays;
+import java.util.Random;
+
+public class TestTopKCollector extends BaseTest {
+    private static int[][] drain(TopKCollector collector) {
+        int[] docIds = new int[collector.size()];
+        int[] scores = new int[collector.size()];
+        int[] next = {0};
+        collector.drain((docId, score) -> {
+            docIds[next[0]] = docId;
+            scores[next[0]] = (int) score;
+            next[0]++;
+        });
+        return new int[][] {docIds, scores};
+    }
+
+    @Test(timeout=SECOND)
+    public void testEmitsBestFirst() {
+        TopKCollector collector = new TopKCollector(3);
+        collector.accept(0, 5);
+        collector.accept(1, 9);
+        collector.accept(2, 1);
+        collector.accept(3, 7);
+        collector.accept(4, 8);
+
+        int[][] drained = drain(collector);
+        assertTrue(Arrays.equals(new int[] {1, 4, 3}, drained[0]));
+        assertTrue(Arrays.equals(new int[] {9, 8, 7}, drained[1]));
+        assertEquals(0, collector.size());
+    }
+
+    @Test(timeout=SECOND)
+    public void testTiesFavourLowerDocId() {
+        TopKCollector collector = new TopKCollector(2);
+        collector.accept(7, 1);
+        collector.accept(3, 1);
+        collector.accept(5, 1);
+        collector.accept(1, 1);
+
+        assertTrue(Arrays.equals(new int[] {1, 3}, drain(collector)[0]));
+    }
+
+    @Test(timeout=SECOND)
+    public void testFewerThanK() {
+        TopKCollector collector = new TopKCollector(10);
+        collector.accept(4, 2);
+        collector.accept(2, 3);
+        assertFalse(collector.isFull());
+        assertEquals(2.0, collector.getThreshold(), 0.0);
+
+        int[][] drained = drain(collector);
+        assertTrue(Arrays.equals(new int[] {2, 4}, drained[0]));
+    }
+
+    @Test(timeout=SECOND)
+    public void testZeroAndNegativeK() {
+        TopKCollector collector = new TopKCollector(0);
+        assertTrue(collector.isFull());
+        collector.accept(1, 1);
+        assertEquals(0, drain(collector)[0].length);
+
+        try {
+            new TopKCollector(-1);
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException ex) {
+            // Do nothing: this is ok
+        }
+    }
+
+    @Test(timeout=SECOND)
+    public void testMatchesFullSort() {
+        Random random = new Random(7);
+        for (int trial = 0; trial < 200; trial++) {
+            int count = random.nextInt(500);
+            int k = random.nextInt(50);
+            long[] pairs = new long[count];
+            TopKCollector collector = new TopKCollector(k);
+            for (int docId = 0; docId < count; docId++) {
+                // Few distinct scores, so there are plenty of ties
+                int score = random.nextInt(20);
+                collector.accept(docId, score);
+                pairs[docId] = ((long) (19 - score) << 32) | docId;
+            }
+
+            // Sorting by (-score, docId) gives the expected order
+            Arrays.sort(pairs);
+            int[][] drained = drain(collector);
+            assertEquals(Math.min(k, count), drained[0].length);
+            for (int i = 0; i < drained[0].length; i++) {
+                assertEquals((int) pairs[i], drained[0][i]);
+                assertEquals(19 - (int) (pairs[i] >>> 32), drained[1][i]);
+            }
+        }
+    }
+}
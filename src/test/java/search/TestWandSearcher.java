@@ -0,0 +1,216 @@
+package search;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import datastructures.concrete.ArrayList;
+import datastructures.concrete.ChainedHashSet;
+import datastructures.interfaces.IList;
+import datastructures.interfaces.ISet;
+import misc.BaseTest;
+import org.junit.Test;
+import search.analyzers.Bm25Model;
+import search.analyzers.CosineModel;
+import search.analyzers.InvertedIndex;
+import search.analyzers.PageRankAnalyzer;
+import search.analyzers.RelevanceModel;
+import search.analyzers.TfIdfAnalyzer;
+import search.analyzers.WandSearcher;
+import search.index.IndexSegment;
+import search.models.DocumentRegistry;
+import search.models.Webpage;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+public class TestWandSearcher extends BaseTest {
+    private static final String[] VOCABULARY = {
+        "seattle", "coffee", "ferry", "island", "rain", "grunge", "music", "space",
+        "needle", "market", "fish", "salmon", "mountain", "lake", "bridge", "tower",
+    };
+
+    private WandSearcher searcher;
+
+    private ISet<Webpage> makeRandomPages(int pageCount, Random random) {
+        URI[] uris = new URI[pageCount];
+        for (int i = 0; i < pageCount; i++) {
+            uris[i] = URI.create("http://example.com/page-" + i + ".html");
+        }
+
+        ISet<Webpage> pages = new ChainedHashSet<>();
+        for (int i = 0; i < pageCount; i++) {
+            IList<URI> links = new ArrayList<>();
+            for (int j = random.nextInt(4); j > 0; j--) {
+                links.add(uris[random.nextInt(pageCount)]);
+            }
+
+            // Favour words near the front of the vocabulary, so some words are common
+            // and others rare, as in real pages
+            IList<String> words = new ArrayList<>();
+            for (int j = 1 + random.nextInt(30); j > 0; j--) {
+                int index = (int) (VOCABULARY.length * Math.pow(random.nextDouble(), 2));
+                words.add(VOCABULARY[index]);
+            }
+            pages.add(new Webpage(uris[i], links, words, "title", "blurb"));
+        }
+        return pages;
+    }
+
+    private IList<String> makeRandomQuery(Random random) {
+        IList<String> query = new ArrayList<>();
+        for (int i = 1 + random.nextInt(4); i > 0; i--) {
+            query.add(random.nextInt(10) == 0 ? "unknown" : VOCABULARY[random.nextInt(VOCABULARY.length)]);
+        }
+        return query;
+    }
+
+    private WandSearcher makeSearcher(Random random) {
+        return this.makeSearcher(random, false);
+    }
+
+    private WandSearcher makeSearcher(Random random, boolean bm25) {
+        ISet<Webpage> pages = this.makeRandomPages(500, random);
+        DocumentRegistry registry = new DocumentRegistry(pages);
+        InvertedIndex index = new TfIdfAnalyzer(pages, registry).getInvertedIndex();
+        PageRankAnalyzer pageRanks = new PageRankAnalyzer(pages, registry, 0.85, 0.00001, 100);
+        RelevanceModel model = bm25 ? new Bm25Model(index) : new CosineModel(index);
+        return new WandSearcher(model, docId -> Math.sqrt(pageRanks.computePageRank(docId)));
+    }
+
+    private static void collect(IList<Integer> docIds, IList<Double> scores, int docId, double score) {
+        docIds.add(docId);
+        scores.add(score);
+    }
+
+    @Test(timeout=SECOND)
+    public void testPrunedMatchesExhaustive() {
+        Random random = new Random(12);
+        this.searcher = this.makeSearcher(random);
+        this.assertPrunedMatchesExhaustive(random);
+    }
+
+    @Test(timeout=SECOND)
+    public void testPrunedMatchesExhaustiveWithBm25() {
+        Random random = new Random(13);
+        this.searcher = this.makeSearcher(random, true);
+        this.assertPrunedMatchesExhaustive(random);
+    }
+
+    private void assertPrunedMatchesExhaustive(Random random) {
+        int[] ks = {1, 2, 5, 10, 50, 1000};
+        for (int i = 0; i < 300; i++) {
+            IList<String> query = this.makeRandomQuery(random);
+            int k = ks[i % ks.length];
+
+            IList<Integer> expectedIds = new ArrayList<>();
+            IList<Double> expectedScores = new ArrayList<>();
+            this.searcher.searchExhaustively(query, k, (docId, score) -> collect(expectedIds, expectedScores, docId, score));
+            IList<Integer> actualIds = new ArrayList<>();
+            IList<Double> actualScores = new ArrayList<>();
+            this.searcher.search(query, k, (docId, score) -> collect(actualIds, actualScores, docId, score));
+
+            assertEquals(expectedIds.size(), actualIds.size());
+            for (int j = 0; j < expectedIds.size(); j++) {
+                assertEquals(expectedIds.get(j), actualIds.get(j));
+                assertEquals(expectedScores.get(j), actualScores.get(j));
+            }
+        }
+    }
+
+    @Test(timeout=SECOND)
+    public void testParallelMatchesSequential() {
+        Random random = new Random(90);
+        this.searcher = this.makeSearcher(random);
+        this.assertParallelMatchesSequential(random, 4);
+    }
+
+    @Test(timeout=10 * SECOND)
+    public void testParallelMatchesSequentialOnSegment() throws IOException {
+        // Enough pages that common words' postings span many blocks, so every range
+        // starts partway through them
+        Random random = new Random(91);
+        ISet<Webpage> pages = this.makeRandomPages(3000, random);
+        DocumentRegistry registry = new DocumentRegistry(pages);
+        TfIdfAnalyzer analyzer = new TfIdfAnalyzer(pages, registry);
+        PageRankAnalyzer pageRanks = new PageRankAnalyzer(pages, registry, 0.85, 0.00001, 100);
+
+        Path directory = Files.createTempDirectory("segment");
+        IndexSegment.write(directory, analyzer, pageRanks, registry.size());
+        IndexSegment segment = IndexSegment.open(directory);
+        this.searcher = new WandSearcher(new CosineModel(segment), docId -> Math.sqrt(segment.getPageRank(docId)));
+        this.assertParallelMatchesSequential(random, 16);
+    }
+
+    private void assertParallelMatchesSequential(Random random, int parallelism) {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+
+        try {
+            int[] ks = {1, 3, 10, 100};
+            for (int i = 0; i < 200; i++) {
+                IList<String> query = this.makeRandomQuery(random);
+                int k = ks[i % ks.length];
+
+                IList<Integer> expectedIds = new ArrayList<>();
+                IList<Double> expectedScores = new ArrayList<>();
+                this.searcher.search(query, k, (docId, score) -> collect(expectedIds, expectedScores, docId, score));
+                IList<Integer> actualIds = new ArrayList<>();
+                IList<Double> actualScores = new ArrayList<>();
+                this.searcher.searchInParallel(query, k, pool, 0,
+                        (docId, score) -> collect(actualIds, actualScores, docId, score));
+
+                assertEquals(expectedIds.size(), actualIds.size());
+                for (int j = 0; j < expectedIds.size(); j++) {
+                    assertEquals(expectedIds.get(j), actualIds.get(j));
+                    assertEquals(expectedScores.get(j), actualScores.get(j));
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test(timeout=SECOND)
+    public void testResultsAreOrderedBestFirst() {
+        Random random = new Random(34);
+        this.searcher = this.makeSearcher(random);
+
+        IList<Integer> docIds = new ArrayList<>();
+        IList<Double> scores = new ArrayList<>();
+        IList<String> query = new ArrayList<>();
+        query.add("seattle");
+        query.add("salmon");
+        this.searcher.search(query, 20, (docId, score) -> collect(docIds, scores, docId, score));
+
+        assertEquals(20, docIds.size());
+        for (int i = 1; i < docIds.size(); i++) {
+            double previous = scores.get(i - 1);
+            double current = scores.get(i);
+            assertTrue(previous > current || (previous == current && docIds.get(i - 1) < docIds.get(i)));
+        }
+    }
+
+    @Test(timeout=SECOND)
+    public void testZeroResults() {
+        this.searcher = this.makeSearcher(new Random(56));
+        IList<String> query = new ArrayList<>();
+        query.add("seattle");
+        this.searcher.search(query, 0, (docId, score) -> fail("Expected no results"));
+        query.set(0, "unknown");
+        this.searcher.search(query, 10, (docId, score) -> fail("Expected no results"));
+    }
+
+    @Test(timeout=SECOND)
+    public void testNegativeKThrowsException() {
+        this.searcher = this.makeSearcher(new Random(78));
+        try {
+            this.searcher.search(new ArrayList<>(), -1, (docId, score) -> { });
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException ex) {
+            // Do nothing: this is ok
+        }
+    }
+}
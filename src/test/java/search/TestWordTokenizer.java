@@ -0,0 +1,64 @@
+package search;
+
+import datastructures.interfaces.IList;
+import misc.BaseTest;
+import org.junit.Test;
+import search.misc.WordTokenizer;
+
+import java.util.Arrays;
+import java.util.Random;
+
+public class TestWordTokenizer extends BaseTest {
+    /**
+     * The regex-based implementation WordTokenizer must keep matching.
+     */
+    private static String[] extractWithRegex(String input) {
+        return Arrays.stream(input.toLowerCase().split("\\s+"))
+                .map(word -> word.replaceAll("\\p{Punct}", ""))
+                .filter(word -> !word.isEmpty())
+                .toArray(String[]::new);
+    }
+
+    private static void assertMatchesRegex(String input) {
+        String[] expected = extractWithRegex(input);
+        IList<String> actual = WordTokenizer.extract(input);
+        assertEquals("Wrong number of words in '" + input + "'", expected.length, actual.size());
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals("Wrong word in '" + input + "'", expected[i], actual.get(i));
+        }
+    }
+
+    @Test(timeout=SECOND)
+    public void testBasic() {
+        IList<String> words = WordTokenizer.extract("  The QUICK, brown fox's\tjumped...\n over -- it!");
+        String[] expected = {"the", "quick", "brown", "foxs", "jumped", "over", "it"};
+        assertEquals(expected.length, words.size());
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], words.get(i));
+        }
+
+        assertEquals(0, WordTokenizer.extract("").size());
+        assertEquals(0, WordTokenizer.extract(" \r\n ... ").size());
+    }
+
+    @Test(timeout=SECOND)
+    public void testUnusualCharacters() {
+        assertMatchesRegex("ÀÉÎ õü ΟΔΟΣ. İstanbul straße  nbsp em 😀Smile 𐐀Deseret");
+        assertMatchesRegex("a\u000Bb\u000Cc\u001Cd \u0085e");
+        assertMatchesRegex("KKelvin _under_score_ {braces} ~tilde~ back\\slash");
+    }
+
+    @Test(timeout=5 * SECOND)
+    public void testRandomTextMatchesRegex() {
+        String alphabet = "aZz09 \t\n\r\u000B\u000C.,;'\"!?-_()[]{}<>@#$%^&*+=/\\|`~éÉßİıΣσς€  ";
+        Random random = new Random(3);
+        for (int i = 0; i < 2000; i++) {
+            StringBuilder input = new StringBuilder();
+            int length = random.nextInt(60);
+            for (int j = 0; j < length; j++) {
+                input.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+            assertMatchesRegex(input.toString());
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package search.index;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import misc.BaseTest;
+import org.junit.Test;
+import search.analyzers.Postings;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+public class TestPostingsCodec extends BaseTest {
+    public static final double DELTA = 0.000001;
+
+    private static Postings makePostings(int size, int maxGap, int maxFrequency, long seed) {
+        Random random = new Random(seed);
+        int[] docIds = new int[size];
+        int[] frequencies = new int[size];
+        int docId = -1;
+        for (int i = 0; i < size; i++) {
+            // Mostly small values, with the occasional large one to force exceptions
+            int gap = random.nextInt(20) == 0 ? maxGap : 1 + random.nextInt(4);
+            docId += gap;
+            docIds[i] = docId;
+            frequencies[i] = random.nextInt(20) == 0 ? maxFrequency : 1 + random.nextInt(3);
+        }
+        return new Postings(docIds, new double[size], frequencies, size);
+    }
+
+    private static ByteBuffer encode(Postings postings, int padding) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.write(new byte[padding]);
+        PostingsCodec.encode(postings, out);
+        out.flush();
+        return ByteBuffer.wrap(bytes.toByteArray());
+    }
+
+    private static void assertRoundTrips(Postings postings) throws IOException {
+        ByteBuffer buffer = encode(postings, 3);
+        int[] docIds = new int[postings.size()];
+        int[] frequencies = new int[postings.size()];
+        PostingsCodec.Decoder decoder = new PostingsCodec.Decoder(buffer, 3, postings.size());
+        for (int block = 0; block < decoder.getBlockCount(); block++) {
+            decoder.decodeBlock(block, docIds, frequencies, block * PostingsCodec.BLOCK_SIZE);
+        }
+        for (int i = 0; i < postings.size(); i++) {
+            assertEquals(postings.getDocId(i), docIds[i]);
+            assertEquals(postings.getFrequency(i), frequencies[i]);
+        }
+    }
+
+    @Test(timeout=SECOND)
+    public void testRoundTripsEveryBlockShape() throws IOException {
+        int[] sizes = {0, 1, 127, 128, 129, 256, 1000};
+        for (int size : sizes) {
+            assertRoundTrips(makePostings(size, 1000, 50, size));
+            assertRoundTrips(makePostings(size, 1 << 20, 1 << 16, size));
+        }
+
+        // Values needing every bit of a non-negative int are packed at full width
+        int[] docIds = new int[128];
+        for (int i = 0; i < docIds.length; i++) {
+            docIds[i] = Integer.MAX_VALUE - 128 + i;
+        }
+        int[] frequencies = new int[128];
+        Arrays.fill(frequencies, Integer.MAX_VALUE);
+        assertRoundTrips(new Postings(docIds, new double[128], frequencies, 128));
+    }
+
+    @Test(timeout=SECOND)
+    public void testSkipEntriesFindBlocks() throws IOException {
+        Postings postings = makePostings(1000, 1000, 50, 1);
+        PostingsCodec.Decoder decoder = new PostingsCodec.Decoder(encode(postings, 0), 0, postings.size());
+        assertEquals(8, decoder.getBlockCount());
+
+        int[] docIds = new int[PostingsCodec.BLOCK_SIZE];
+        int[] frequencies = new int[PostingsCodec.BLOCK_SIZE];
+        for (int i = 0; i < postings.size(); i += 97) {
+            int block = decoder.findBlock(0, postings.getDocId(i));
+            assertEquals(i / PostingsCodec.BLOCK_SIZE, block);
+
+            int count = decoder.decodeBlock(block, docIds, frequencies, 0);
+            int position = i % PostingsCodec.BLOCK_SIZE;
+            assertTrue(position < count);
+            assertEquals(postings.getDocId(i), docIds[position]);
+            assertEquals(postings.getFrequency(i), frequencies[position]);
+        }
+        assertEquals(0, decoder.findBlock(0, -1));
+        assertEquals(3, decoder.findBlock(3, -1));
+        assertEquals(8, decoder.findBlock(0, postings.getDocId(999) + 1));
+    }
+
+    @Test(timeout=SECOND)
+    public void testSegmentPostingsMatchArrays() throws IOException {
+        Postings expected = makePostings(1000, 1000, 50, 4);
+        int lastDocId = expected.getDocId(expected.size() - 1);
+        int[] lengths = new int[lastDocId + 1];
+        for (int docId = 0; docId < lengths.length; docId++) {
+            lengths[docId] = 100 + docId % 7;
+        }
+        double idf = 1.5;
+        Postings actual = new SegmentPostings(encode(expected, 5), 5, expected.size(), idf, IntBuffer.wrap(lengths));
+        assertEquals(expected.size(), actual.size());
+
+        // Read out of order, so blocks are decoded again and again
+        for (int i = expected.size() - 1; i >= 0; i -= 7) {
+            assertEquals(expected.getDocId(i), actual.getDocId(i));
+            assertEquals(expected.getFrequency(i), actual.getFrequency(i));
+            double tf = (double) expected.getFrequency(i) / lengths[expected.getDocId(i)];
+            assertEquals(tf * idf, actual.getWeight(i), DELTA);
+        }
+
+        Postings duplicate = actual.duplicate();
+        Random random = new Random(5);
+        for (int i = 0; i < 2000; i++) {
+            int from = random.nextInt(expected.size() + 1);
+            int target = random.nextInt(lastDocId + 10) - 5;
+            assertEquals(expected.advance(from, target), actual.advance(from, target));
+            assertEquals(expected.advance(from, target), duplicate.advance(from, target));
+        }
+        assertEquals(expected.size(), actual.advance(expected.size(), 0));
+        assertEquals(expected.size(), actual.advance(0, lastDocId + 1));
+
+        try {
+            actual.getDocId(expected.size());
+            fail("Expected IndexOutOfBoundsException");
+        } catch (IndexOutOfBoundsException ex) {
+            // Do nothing: this is ok
+        }
+    }
+
+    @Test(timeout=SECOND)
+    public void testCompressesDenseLists() throws IOException {
+        // Uncompressed, a posting takes an int id, an int frequency and a double weight
+        Postings postings = makePostings(100000, 1000, 50, 2);
+        int encodedSize = encode(postings, 0).limit();
+        assertTrue(encodedSize * 8 < postings.size() * 16);
+    }
+}
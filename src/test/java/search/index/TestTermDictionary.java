@@ -0,0 +1,133 @@
+package search.index;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import misc.BaseTest;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeSet;
+
+public class TestTermDictionary extends BaseTest {
+    private static byte[][] toSortedBytes(String... words) {
+        byte[][] bytes = new byte[words.length][];
+        for (int i = 0; i < words.length; i++) {
+            bytes[i] = words[i].getBytes(StandardCharsets.UTF_8);
+        }
+        Arrays.sort(bytes, (a, b) -> {
+            for (int i = 0; i < Math.min(a.length, b.length); i++) {
+                int difference = (a[i] & 0xFF) - (b[i] & 0xFF);
+                if (difference != 0) {
+                    return difference;
+                }
+            }
+            return a.length - b.length;
+        });
+        return bytes;
+    }
+
+    private static ByteBuffer writeDictionary(byte[][] words) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        TermDictionary.write(words, out);
+        out.flush();
+        return ByteBuffer.wrap(bytes.toByteArray());
+    }
+
+    private static TermDictionary makeDictionary(String... words) throws IOException {
+        return new TermDictionary(writeDictionary(toSortedBytes(words)), words.length);
+    }
+
+    private static List<String> withPrefix(TermDictionary dictionary, String prefix) {
+        List<String> out = new ArrayList<>();
+        dictionary.forEachWithPrefix(prefix, (termId, word) -> {
+            assertEquals(termId, dictionary.find(word));
+            out.add(word);
+        });
+        return out;
+    }
+
+    @Test(timeout=SECOND)
+    public void testFindsEveryWord() throws IOException {
+        String[] words = new String[100];
+        for (int i = 0; i < words.length; i++) {
+            words[i] = "word" + i;
+        }
+        words[7] = "café";
+        words[8] = "a-word-much-longer-than-fifteen-bytes";
+        TermDictionary dictionary = makeDictionary(words);
+        assertEquals(100, dictionary.size());
+
+        // Ids are positions in sorted order
+        String previous = null;
+        for (int termId = 0; termId < dictionary.size(); termId++) {
+            String word = dictionary.getTerm(termId);
+            assertEquals(termId, dictionary.find(word));
+            if (previous != null) {
+                assertTrue(previous.compareTo(word) < 0);
+            }
+            previous = word;
+        }
+        for (String word : words) {
+            assertTrue(dictionary.find(word) != -1);
+        }
+
+        assertEquals(-1, dictionary.find(""));
+        assertEquals(-1, dictionary.find("a"));
+        assertEquals(-1, dictionary.find("word"));
+        assertEquals(-1, dictionary.find("word1000"));
+        assertEquals(-1, dictionary.find("zebra"));
+    }
+
+    @Test(timeout=SECOND)
+    public void testPrefixAndRangeLookups() throws IOException {
+        TermDictionary dictionary = makeDictionary(
+                "sea", "seattle", "seahawks", "search", "seal", "see", "ferry", "seb", "s");
+
+        assertEquals(Arrays.asList("sea", "seahawks", "seal", "search", "seattle"), withPrefix(dictionary, "sea"));
+        assertEquals(Arrays.asList("seattle"), withPrefix(dictionary, "seat"));
+        assertEquals(9, withPrefix(dictionary, "").size());
+        assertEquals(0, withPrefix(dictionary, "zz").size());
+        assertEquals(0, withPrefix(dictionary, "seattles").size());
+
+        List<String> range = new ArrayList<>();
+        dictionary.forEachInRange("seal", "seb", (termId, word) -> range.add(word));
+        assertEquals(Arrays.asList("seal", "search", "seattle"), range);
+    }
+
+    @Test(timeout=SECOND)
+    public void testEmptyDictionary() throws IOException {
+        TermDictionary dictionary = makeDictionary();
+        assertEquals(0, dictionary.size());
+        assertEquals(-1, dictionary.find("a"));
+        assertEquals(0, withPrefix(dictionary, "").size());
+        try {
+            dictionary.getTerm(0);
+            fail("Expected IndexOutOfBoundsException");
+        } catch (IndexOutOfBoundsException ex) {
+            // Do nothing: this is ok
+        }
+    }
+
+    @Test(timeout=SECOND)
+    public void testTakesLessThanABytePerCharacter() throws IOException {
+        TreeSet<String> words = new TreeSet<>();
+        for (int i = 0; i < 20000; i++) {
+            words.add("term" + Integer.toString(i * 7919, 36));
+        }
+        int characters = 0;
+        for (String word : words) {
+            characters += word.length();
+        }
+        int size = writeDictionary(toSortedBytes(words.toArray(new String[0]))).limit();
+        assertTrue(size < characters);
+    }
+}
@@ -0,0 +1,66 @@
+package search.models;
+
+import static org.junit.Assert.fail;
+
+import datastructures.interfaces.IDictionary;
+import misc.BaseTest;
+import org.junit.Test;
+import search.misc.exceptions.DataExtractionException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class TestLocalPageFile extends BaseTest {
+    private static LocalPageFile readString(String contents) throws IOException {
+        Path path = Files.createTempFile("page", ".html");
+        try {
+            Files.write(path, contents.getBytes(StandardCharsets.UTF_8));
+            return LocalPageFile.read(path.toUri());
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    private static String readBody(LocalPageFile file) throws IOException {
+        try (InputStream body = file.openBody()) {
+            byte[] bytes = new byte[4096];
+            int length = 0;
+            for (int read; (read = body.read(bytes, length, bytes.length - length)) > 0; ) {
+                length += read;
+            }
+            return new String(bytes, 0, length, StandardCharsets.UTF_8);
+        }
+    }
+
+    @Test(timeout=SECOND)
+    public void testSplitsHeaderFromBody() throws IOException {
+        LocalPageFile file = readString(
+                "<!-- METADATA\nuri: http://example.com/a: b\r\ntitle: Café\r-->\r\n<html>\n</html>");
+
+        IDictionary<String, String> metadata = file.getMetadata();
+        assertEquals(2, metadata.size());
+        assertEquals("http://example.com/a: b", metadata.get("uri"));
+        assertEquals("Café", metadata.get("title"));
+        assertEquals("<html>\n</html>", readBody(file));
+    }
+
+    @Test(timeout=SECOND)
+    public void testRejectsMissingOrUnterminatedHeader() throws IOException {
+        String[] invalid = {
+            "<html></html>",
+            "<!-- METADATA\nuri: http://example.com\n",
+            "<!-- METADATA\nno separator\n-->\n",
+        };
+        for (String contents : invalid) {
+            try {
+                readString(contents);
+                fail("Expected DataExtractionException for: " + contents);
+            } catch (DataExtractionException ex) {
+                // All ok -- fall through
+            }
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package search.models;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import datastructures.concrete.DoubleLinkedList;
+import datastructures.interfaces.IList;
+import misc.BaseTest;
+import org.junit.Test;
+import search.misc.exceptions.DataExtractionException;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+
+public class TestWebpageCache extends BaseTest {
+    private static final String PAGE =
+            "<!-- METADATA\nuri: http://example.com/a\n-->\n"
+            + "<html><head><title>Ferries</title></head>"
+            + "<body><p>The ferry leaves the ferry dock.</p>"
+            + "<a href=\"b.html\">next</a> <a href=\"http://example.com/c\">other</a></body></html>";
+
+    private static <T> void assertListMatches(IList<T> expected, IList<T> actual) {
+        assertEquals(expected.size(), actual.size());
+        Iterator<T> actualIter = actual.iterator();
+        for (T item : expected) {
+            assertEquals(item, actualIter.next());
+        }
+    }
+
+    private static void assertPageMatches(Webpage expected, Webpage actual) {
+        assertEquals(expected.getUri(), actual.getUri());
+        assertEquals(expected.getSummary().getTitle(), actual.getSummary().getTitle());
+        assertEquals(expected.getSummary().getBlurb(), actual.getSummary().getBlurb());
+        assertListMatches(expected.getWords(), actual.getWords());
+        assertListMatches(expected.getLinks(), actual.getLinks());
+    }
+
+    private static Path makeTempDirectory() throws IOException {
+        Path directory = Files.createTempDirectory("cache");
+        directory.toFile().deleteOnExit();
+        return directory;
+    }
+
+    private static void deleteAll(Path directory) {
+        File[] files = directory.toFile().listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.toFile().delete();
+    }
+
+    @Test(timeout=SECOND)
+    public void testRoundTrip() throws IOException {
+        IList<String> words = new DoubleLinkedList<>();
+        for (String word : new String[] {"seattle", "ferry", "café", "seattle", "", "ferry"}) {
+            words.add(word);
+        }
+        IList<URI> links = new DoubleLinkedList<>();
+        links.add(URI.create("http://example.com/b"));
+        links.add(URI.create("http://example.com/c?q=1#top"));
+        links.add(URI.create("http://example.com/b"));
+        Webpage page = new Webpage(
+                URI.create("http://example.com/a"), links, words, "Ferries – Seattle", "All about ferries");
+
+        Path directory = makeTempDirectory();
+        try {
+            File cache = directory.resolve("a.cache").toFile();
+            WebpageCache.write(page, cache);
+            assertPageMatches(page, WebpageCache.read(cache));
+
+            // Writing again replaces the old cache and leaves no temporary file behind
+            WebpageCache.write(page, cache);
+            assertPageMatches(page, WebpageCache.read(cache));
+            assertEquals(1, directory.toFile().list().length);
+        } finally {
+            deleteAll(directory);
+        }
+    }
+
+    @Test(timeout=SECOND)
+    public void testRebuildsCorruptedCache() throws IOException {
+        Path directory = makeTempDirectory();
+        try {
+            Path original = directory.resolve("a.html");
+            Path cache = directory.resolve("a.cache");
+            Files.write(original, PAGE.getBytes(StandardCharsets.UTF_8));
+
+            Webpage expected = Webpage.loadOriginal(original.toUri());
+            assertPageMatches(expected, Webpage.load(original.toUri()));
+            assertTrue(Files.exists(cache));
+
+            // Flip one bit in the payload, past the header
+            byte[] bytes = Files.readAllBytes(cache);
+            bytes[bytes.length / 2 + 8] ^= 0x01;
+            Files.write(cache, bytes);
+            try {
+                WebpageCache.read(cache.toFile());
+                fail("Expected DataExtractionException");
+            } catch (DataExtractionException ex) {
+                // Do nothing: this is ok
+            }
+
+            assertPageMatches(expected, Webpage.load(original.toUri()));
+            assertPageMatches(expected, WebpageCache.read(cache.toFile()));
+
+            // A truncated cache is rebuilt too
+            bytes = Files.readAllBytes(cache);
+            byte[] truncated = new byte[bytes.length - 1];
+            System.arraycopy(bytes, 0, truncated, 0, truncated.length);
+            Files.write(cache, truncated);
+            assertPageMatches(expected, Webpage.load(original.toUri()));
+            assertPageMatches(expected, WebpageCache.read(cache.toFile()));
+        } finally {
+            deleteAll(directory);
+        }
+    }
+
+    @Test(timeout=SECOND)
+    public void testRebuildsOldTextCache() throws IOException {
+        Path directory = makeTempDirectory();
+        try {
+            Path original = directory.resolve("a.html");
+            Path cache = directory.resolve("a.cache");
+            Files.write(original, PAGE.getBytes(StandardCharsets.UTF_8));
+
+            // The old format: URI, title, blurb, then the words, then one link per line
+            String oldCache = "http://example.com/a\nStale title\n\nstale words \nhttp://example.com/z\n";
+            Files.write(cache, oldCache.getBytes(StandardCharsets.UTF_8));
+            try {
+                WebpageCache.read(cache.toFile());
+                fail("Expected DataExtractionException");
+            } catch (DataExtractionException ex) {
+                // Do nothing: this is ok
+            }
+
+            Webpage expected = Webpage.loadOriginal(original.toUri());
+            assertPageMatches(expected, Webpage.load(original.toUri()));
+            assertPageMatches(expected, WebpageCache.read(cache.toFile()));
+            assertTrue(!WebpageCache.read(cache.toFile()).getSummary().getTitle().equals("Stale title"));
+        } finally {
+            deleteAll(directory);
+        }
+    }
+}